@@ -0,0 +1,186 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import swen221.tetris.logic.BoardEngine;
+import swen221.tetris.moves.ClockwiseRotation;
+import swen221.tetris.moves.DropMove;
+
+/**
+ * Benchmarks for the individual operations on a board, measured over a corpus
+ * of boards (see <code>BoardCorpus</code>). Each invocation uses the next board
+ * of the corpus in turn. Operations which modify the board are applied to a
+ * copy, which is then released, so their results include the cost of
+ * <code>copy()</code> (as measured by itself in <code>copy()</code>).
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+	/**
+	 * The size of the boards, as width by height.
+	 */
+	@Param({ "10x20", "20x40" })
+	public String size;
+
+	/**
+	 * The height of the stack on each board, as a fraction of the board.
+	 */
+	@Param({ "0.0", "0.25", "0.5", "0.75" })
+	public double density;
+
+	/**
+	 * The mix of tetrominos used (see <code>BoardCorpus.mix()</code>).
+	 */
+	@Param({ "all", "SZ", "IO" })
+	public String mix;
+
+	/**
+	 * The implementation of the board (see <code>BoardEngine.forName()</code>).
+	 */
+	@Param({ "reference", "arena" })
+	public String engine;
+
+	/**
+	 * The boards being measured.
+	 */
+	private BoardEngine[] boards;
+
+	/**
+	 * The index of the next board to use.
+	 */
+	private int index;
+
+	/**
+	 * The rotation being measured.
+	 */
+	private final ClockwiseRotation rotation = new ClockwiseRotation();
+
+	/**
+	 * The drop being measured.
+	 */
+	private final DropMove drop = new DropMove();
+
+	/**
+	 * Generate the corpus of boards.
+	 */
+	@Setup
+	public void setup() {
+		int[] dimensions = BoardCorpus.size(size);
+		boards = BoardCorpus.generate(BoardEngine.forName(engine), BoardCorpus.SEED, dimensions[0], dimensions[1],
+				density, mix);
+	}
+
+	/**
+	 * Release the corpus of boards.
+	 */
+	@TearDown
+	public void tearDown() {
+		for (BoardEngine board : boards) {
+			board.release();
+		}
+	}
+
+	/**
+	 * Get the next board of the corpus.
+	 *
+	 * @return The board.
+	 */
+	private BoardEngine next() {
+		BoardEngine board = boards[index];
+		index = (index + 1) % boards.length;
+		return board;
+	}
+
+	/**
+	 * Check whether the active tetromino can be placed.
+	 *
+	 * @return The result, to be consumed.
+	 */
+	@Benchmark
+	public boolean canPlaceTetromino() {
+		BoardEngine board = next();
+		return board.canPlaceTetromino(board.getActiveTetromino());
+	}
+
+	/**
+	 * Check whether the active tetromino has landed.
+	 *
+	 * @return The result, to be consumed.
+	 */
+	@Benchmark
+	public boolean checkLanded() {
+		BoardEngine board = next();
+		return board.getActiveTetromino() != null && board.CheckLanded(board.getActiveTetromino());
+	}
+
+	/**
+	 * Remove the full rows from a copy of the board.
+	 *
+	 * @return The number of rows removed, to be consumed.
+	 */
+	@Benchmark
+	public int lineProcess() {
+		BoardEngine board = next().copy();
+		int n = board.LineProcess().length;
+		board.release();
+		return n;
+	}
+
+	/**
+	 * Print the board.
+	 *
+	 * @return The printed board, to be consumed.
+	 */
+	@Benchmark
+	public String print() {
+		return next().toString();
+	}
+
+	/**
+	 * Copy the board.
+	 *
+	 * @param bh Consumes the copy.
+	 */
+	@Benchmark
+	public void copy(Blackhole bh) {
+		BoardEngine board = next().copy();
+		bh.consume(board);
+		board.release();
+	}
+
+	/**
+	 * Drop the active tetromino on a copy of the board.
+	 *
+	 * @param bh Consumes the resulting board.
+	 */
+	@Benchmark
+	public void dropMove(Blackhole bh) {
+		BoardEngine board = next().copy();
+		bh.consume(drop.apply(board));
+		board.release();
+	}
+
+	/**
+	 * Check whether the active tetromino can be rotated.
+	 *
+	 * @return The result, to be consumed.
+	 */
+	@Benchmark
+	public boolean rotationIsValid() {
+		return rotation.isValid(next());
+	}
+}
@@ -0,0 +1,143 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.bench;
+
+import java.util.Random;
+
+import swen221.tetris.logic.BoardEngine;
+import swen221.tetris.tetromino.ActiveTetromino;
+import swen221.tetris.tetromino.RandomSequence;
+import swen221.tetris.tetromino.Tetromino;
+
+/**
+ * Generates reproducible collections of boards for benchmarking. The boards in
+ * a corpus are determined entirely by its seed and parameters, so benchmark
+ * results from different commits are measured over identical boards.
+ * <p>
+ * Each board holds a stack of placed tetrominos whose height is a given
+ * fraction (the <i>density</i>) of the board. Within the stack, most rows have
+ * a few holes and some are full, such that removing lines has work to do. Each
+ * board also has an active tetromino, drawn from a given mix of tetrominos and
+ * positioned above the stack.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public final class BoardCorpus {
+	/**
+	 * The seed used by all benchmarks.
+	 */
+	public static final long SEED = 221;
+
+	/**
+	 * The number of boards in each corpus.
+	 */
+	public static final int SIZE = 256;
+
+	/**
+	 * The number of rows kept free above the stack, such that an active
+	 * tetromino can always be issued.
+	 */
+	private static final int HEADROOM = 4;
+
+	/**
+	 * The mixes of tetrominos used by the benchmarks.
+	 */
+	private static final String[][] MIXES = { { "all", RandomSequence.ALL }, { "SZ", "SZ" }, { "IO", "IO" } };
+
+	/**
+	 * This class is not intended to be instantiated.
+	 */
+	private BoardCorpus() {
+	}
+
+	/**
+	 * Generate a corpus of boards.
+	 *
+	 * @param factory Constructs the boards.
+	 * @param seed    The seed which determines the boards.
+	 * @param width   The width (in columns) of each board.
+	 * @param height  The height (in rows) of each board.
+	 * @param density The height of the stack as a fraction of the board.
+	 * @param mix     The name of the mix of tetrominos (see <code>mix()</code>).
+	 * @return The boards.
+	 */
+	public static BoardEngine[] generate(BoardEngine.Factory factory, long seed, int width, int height,
+			double density, String mix) {
+		Random random = new Random(seed);
+		RandomSequence sequence = new RandomSequence(seed, mix(mix));
+		int stack = Math.min(height - HEADROOM, (int) Math.round(density * height));
+		BoardEngine[] boards = new BoardEngine[SIZE];
+		for (int i = 0; i < boards.length; ++i) {
+			BoardEngine board = factory.create(width, height);
+			for (int y = 0; y < stack; ++y) {
+				// One row in eight is full, whilst the others have at least one hole
+				boolean full = random.nextInt(8) == 0;
+				int hole = random.nextInt(width);
+				for (int x = 0; x < width; ++x) {
+					if (full || (x != hole && random.nextInt(10) < 7)) {
+						board.setPlacedTetrominoAt(x, y, sequence.next());
+					}
+				}
+			}
+			board.setActiveTetromino(active(board, sequence.next(), random));
+			boards[i] = board;
+		}
+		return boards;
+	}
+
+	/**
+	 * Get the tetrominos making up a named mix. The mixes are <code>all</code>
+	 * (every tetromino), <code>SZ</code> (the tetrominos which leave the most
+	 * holes) and <code>IO</code> (those which leave the fewest).
+	 *
+	 * @param name The name of the mix.
+	 * @return The names of its tetrominos, as used by
+	 *         <code>RandomSequence</code>.
+	 */
+	public static String mix(String name) {
+		for (String[] mix : MIXES) {
+			if (mix[0].equals(name)) {
+				return mix[1];
+			}
+		}
+		throw new IllegalArgumentException("Invalid mix (" + name + ")");
+	}
+
+	/**
+	 * Parse a board size of the form <code>10x20</code>.
+	 *
+	 * @param size The size.
+	 * @return The width and height.
+	 */
+	public static int[] size(String size) {
+		int i = size.indexOf('x');
+		if (i < 0) {
+			throw new IllegalArgumentException("Invalid size (" + size + ")");
+		}
+		return new int[] { Integer.parseInt(size.substring(0, i)), Integer.parseInt(size.substring(i + 1)) };
+	}
+
+	/**
+	 * Choose a position for the active tetromino, with a random orientation and
+	 * column, in the row where a game would issue it.
+	 *
+	 * @param board     The board.
+	 * @param tetromino The tetromino.
+	 * @param random    Determines the position.
+	 * @return The active tetromino, or <code>null</code> if it cannot be placed.
+	 */
+	private static ActiveTetromino active(BoardEngine board, Tetromino tetromino, Random random) {
+		int y = board.getHeight() - 2;
+		ActiveTetromino t = new ActiveTetromino(random.nextInt(board.getWidth()), y, tetromino)
+				.rotate(random.nextInt(4));
+		if (board.canPlaceTetromino(t)) {
+			return t;
+		}
+		// Fall back to the position used by a game
+		t = new ActiveTetromino(board.getWidth() / 2, y, tetromino);
+		return board.canPlaceTetromino(t) ? t : null;
+	}
+}
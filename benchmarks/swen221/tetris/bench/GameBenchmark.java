@@ -0,0 +1,133 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import swen221.tetris.logic.BoardEngine;
+import swen221.tetris.logic.Game;
+import swen221.tetris.moves.*;
+import swen221.tetris.tetromino.RandomSequence;
+
+/**
+ * Benchmarks for playing whole games, using a seeded sequence of tetrominos and
+ * a seeded sequence of moves interleaved with clock cycles. Each invocation
+ * performs a fixed number of steps, and a new game is started whenever the
+ * current one is over. The game is restarted from the same seed at the start
+ * of each iteration, so every iteration plays exactly the same steps.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+	/**
+	 * The number of steps performed by each invocation.
+	 */
+	private static final int STEPS = 1024;
+
+	/**
+	 * The size of the board, as width by height.
+	 */
+	@Param({ "10x20", "20x40" })
+	public String size;
+
+	/**
+	 * The mix of tetrominos used (see <code>BoardCorpus.mix()</code>).
+	 */
+	@Param({ "all", "SZ", "IO" })
+	public String mix;
+
+	/**
+	 * The implementation of the board (see <code>BoardEngine.forName()</code>).
+	 */
+	@Param({ "reference", "arena" })
+	public String engine;
+
+	/**
+	 * Whether the game is played in mutable mode.
+	 */
+	@Param({ "false", "true" })
+	public boolean mutable;
+
+	/**
+	 * The game being played.
+	 */
+	private Game game;
+
+	/**
+	 * The steps to perform, where <code>null</code> indicates a clock cycle.
+	 */
+	private Move[] steps;
+
+	/**
+	 * Generate the steps to perform. Each tetromino is rotated and shifted a
+	 * random amount, then dropped.
+	 */
+	@Setup
+	public void setup() {
+		int width = BoardCorpus.size(size)[0];
+		Random random = new Random(BoardCorpus.SEED);
+		Move[] moves = { new ClockwiseRotation(), new MoveLeft(), new MoveRight(), new DropMove() };
+		steps = new Move[STEPS];
+		for (int i = 0; i < steps.length;) {
+			int rotations = random.nextInt(4);
+			int shift = random.nextInt(width) - (width / 2);
+			for (int j = 0; j < rotations && i < steps.length; ++j) {
+				steps[i++] = moves[0];
+			}
+			for (int j = 0; j < Math.abs(shift) && i < steps.length; ++j) {
+				steps[i++] = shift < 0 ? moves[1] : moves[2];
+			}
+			for (int j = 0; j < 3 && i < steps.length; ++j) {
+				steps[i++] = j == 0 ? moves[3] : null;
+			}
+		}
+	}
+
+	/**
+	 * Start a new game from the same seed.
+	 */
+	@Setup(Level.Iteration)
+	public void start() {
+		int[] dimensions = BoardCorpus.size(size);
+		if (game != null) {
+			game.getActiveEngine().release();
+		}
+		game = new Game(new RandomSequence(BoardCorpus.SEED, BoardCorpus.mix(mix)), dimensions[0], dimensions[1],
+				BoardEngine.forName(engine));
+		game.setMutable(mutable);
+	}
+
+	/**
+	 * Play the steps, clocking the game and applying moves.
+	 *
+	 * @return The number of moves applied, to be consumed.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(STEPS)
+	public int play() {
+		int applied = 0;
+		for (Move step : steps) {
+			if (step == null) {
+				game.clock();
+			} else if (game.apply(step)) {
+				applied++;
+			}
+			if (game.isGameOver()) {
+				game.reset();
+			}
+		}
+		return applied;
+	}
+}
@@ -0,0 +1,352 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import swen221.tetris.logic.BoardEngine;
+import swen221.tetris.logic.BoardView;
+import swen221.tetris.logic.Game;
+import swen221.tetris.metrics.GameMetrics;
+import swen221.tetris.metrics.Histogram;
+import swen221.tetris.moves.*;
+import swen221.tetris.tetromino.RandomSequence;
+
+/**
+ * Measures how many complete games can be played per second, without the user
+ * interface. Each game is played by a bot which, on every tick, issues at most
+ * one move and then clocks the game, until the game is over. Games are shared
+ * between a number of threads, and each game is determined by its own seed,
+ * such that the same games are played however many threads are used.
+ * <p>
+ * The arguments are the bot policy (<code>random</code> or
+ * <code>placement</code>), the board size (e.g. <code>10x20</code>), the
+ * number of threads, the number of games, and the board implementation (see
+ * <code>BoardEngine.forName()</code>). The same number of games is played
+ * beforehand to warm up, and is not measured. The report gives the rate of
+ * games and ticks, the rate of allocation, and percentiles of the time taken
+ * by each tick, followed by the metrics recorded by the games and their boards.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public class GameThroughput {
+	/**
+	 * The most ticks played in a single game, after which it is abandoned. This
+	 * ensures a bot which never loses cannot stall the benchmark.
+	 */
+	private static final int MAX_TICKS = 1000000;
+
+	/**
+	 * Chooses the moves made during a game.
+	 */
+	private interface Bot {
+		/**
+		 * Choose the move to make on the current tick. The board is a view (see
+		 * <code>Game.getActiveView()</code>), so that reading it does not stop the
+		 * game from releasing it once it is replaced.
+		 *
+		 * @param board The current board.
+		 * @return The move, or <code>null</code> to make no move.
+		 */
+		public Move next(BoardView board);
+	}
+
+	/**
+	 * Moves the active tetromino left.
+	 */
+	private static final Move LEFT = new MoveLeft();
+	/**
+	 * Moves the active tetromino right.
+	 */
+	private static final Move RIGHT = new MoveRight();
+	/**
+	 * Rotates the active tetromino clockwise.
+	 */
+	private static final Move ROTATE = new ClockwiseRotation();
+	/**
+	 * Drops the active tetromino.
+	 */
+	private static final Move DROP = new DropMove();
+	/**
+	 * The moves a bot can make.
+	 */
+	private static final Move[] MOVES = { LEFT, RIGHT, ROTATE, DROP };
+
+	/**
+	 * A bot which makes a random move (or none) on each tick.
+	 */
+	private static final class RandomBot implements Bot {
+		/**
+		 * Determines the moves.
+		 */
+		private final Random random;
+
+		/**
+		 * Construct a bot.
+		 *
+		 * @param seed Determines the moves.
+		 */
+		public RandomBot(long seed) {
+			this.random = new Random(seed);
+		}
+
+		@Override
+		public Move next(BoardView board) {
+			int r = random.nextInt(MOVES.length + 1);
+			return r < MOVES.length ? MOVES[r] : null;
+		}
+	}
+
+	/**
+	 * A bot which chooses a random orientation and column for each tetromino,
+	 * moves it there one step per tick, and then drops it. This spreads
+	 * tetrominos across the board, so lines are removed and games last longer
+	 * than with random moves.
+	 */
+	private static final class PlacementBot implements Bot {
+		/**
+		 * Determines the placements.
+		 */
+		private final Random random;
+
+		/**
+		 * True if the active tetromino has already been given a placement.
+		 */
+		private boolean placing;
+
+		/**
+		 * The rotations still to make.
+		 */
+		private int rotations;
+
+		/**
+		 * The columns still to move, where negative values move left.
+		 */
+		private int shift;
+
+		/**
+		 * Construct a bot.
+		 *
+		 * @param seed Determines the placements.
+		 */
+		public PlacementBot(long seed) {
+			this.random = new Random(seed);
+		}
+
+		@Override
+		public Move next(BoardView board) {
+			if (board.getActiveTetromino() == null) {
+				placing = false;
+				return null;
+			} else if (!placing) {
+				// A new tetromino, so choose where it goes
+				rotations = random.nextInt(4);
+				shift = random.nextInt(board.getWidth()) - (board.getWidth() / 2);
+				placing = true;
+			}
+			if (rotations > 0) {
+				rotations--;
+				return ROTATE;
+			} else if (shift != 0) {
+				Move move = shift < 0 ? LEFT : RIGHT;
+				shift -= Integer.signum(shift);
+				return move;
+			} else {
+				return DROP;
+			}
+		}
+	}
+
+	/**
+	 * Totals for the games played by a single thread.
+	 */
+	private static final class Totals {
+		/**
+		 * The number of games played.
+		 */
+		long games;
+		/**
+		 * The number of ticks played.
+		 */
+		long ticks;
+		/**
+		 * The number of moves applied.
+		 */
+		long moves;
+		/**
+		 * The number of bytes allocated.
+		 */
+		long bytes;
+	}
+
+	/**
+	 * The bot policy.
+	 */
+	private final String policy;
+
+	/**
+	 * The width of the boards.
+	 */
+	private final int width;
+
+	/**
+	 * The height of the boards.
+	 */
+	private final int height;
+
+	/**
+	 * Constructs the boards.
+	 */
+	private final BoardEngine.Factory engine;
+
+	/**
+	 * The time taken by each tick, for all threads.
+	 */
+	private Histogram latency;
+
+	/**
+	 * Construct a benchmark.
+	 *
+	 * @param policy The bot policy, which is either <code>random</code> or
+	 *               <code>placement</code>.
+	 * @param width  The width (in columns) of the boards.
+	 * @param height The height (in rows) of the boards.
+	 * @param engine Constructs the boards.
+	 */
+	public GameThroughput(String policy, int width, int height, BoardEngine.Factory engine) {
+		if (!policy.equals("random") && !policy.equals("placement")) {
+			throw new IllegalArgumentException("Invalid policy (" + policy + ")");
+		}
+		this.policy = policy;
+		this.width = width;
+		this.height = height;
+		this.engine = engine;
+	}
+
+	/**
+	 * Play a number of games across a number of threads.
+	 *
+	 * @param threads The number of threads.
+	 * @param games   The number of games.
+	 * @param seed    The seed of the first game, where later games use
+	 *                successive seeds.
+	 * @return The combined totals, where <code>bytes</code> is -1 if allocation
+	 *         cannot be measured.
+	 * @throws InterruptedException If interrupted whilst waiting for the
+	 *                              threads.
+	 */
+	private Totals run(int threads, int games, long seed) throws InterruptedException {
+		AtomicInteger next = new AtomicInteger();
+		latency = new Histogram();
+		Totals[] totals = new Totals[threads];
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; ++i) {
+			Totals t = totals[i] = new Totals();
+			workers[i] = new Thread(() -> {
+				long before = allocatedBytes();
+				for (int g = next.getAndIncrement(); g < games; g = next.getAndIncrement()) {
+					play(seed + g, t);
+				}
+				long after = allocatedBytes();
+				t.bytes = before < 0 ? -1 : after - before;
+			}, "game-" + i);
+			workers[i].start();
+		}
+		Totals result = new Totals();
+		for (int i = 0; i < threads; ++i) {
+			workers[i].join();
+			result.games += totals[i].games;
+			result.ticks += totals[i].ticks;
+			result.moves += totals[i].moves;
+			result.bytes = result.bytes < 0 || totals[i].bytes < 0 ? -1 : result.bytes + totals[i].bytes;
+		}
+		return result;
+	}
+
+	/**
+	 * Play a single game until it is over.
+	 *
+	 * @param seed   Determines the tetrominos and the moves of the bot.
+	 * @param totals Records the game.
+	 */
+	private void play(long seed, Totals totals) {
+		Game game = new Game(new RandomSequence(seed), width, height, engine);
+		game.setMetrics(GameMetrics.GLOBAL);
+		Bot bot = policy.equals("random") ? new RandomBot(~seed) : new PlacementBot(~seed);
+		long ticks = 0;
+		long moves = 0;
+		while (!game.isGameOver() && ticks < MAX_TICKS) {
+			long start = System.nanoTime();
+			Move move = bot.next(game.getActiveView());
+			if (move != null && game.apply(move)) {
+				moves++;
+			}
+			game.clock();
+			latency.record(System.nanoTime() - start);
+			ticks++;
+		}
+		game.getActiveEngine().release();
+		totals.games++;
+		totals.ticks += ticks;
+		totals.moves += moves;
+	}
+
+	/**
+	 * Get the number of bytes allocated so far by the current thread.
+	 *
+	 * @return The number of bytes, or -1 if this cannot be measured.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+			if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+				return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Run the benchmark and print a report.
+	 *
+	 * @param args The command-line arguments.
+	 * @throws InterruptedException If interrupted whilst waiting for the
+	 *                              threads.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		String policy = args.length > 0 ? args[0] : "placement";
+		int[] size = BoardCorpus.size(args.length > 1 ? args[1] : "10x20");
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		int games = args.length > 3 ? Integer.parseInt(args[3]) : 10000;
+		String engine = args.length > 4 ? args[4] : "reference";
+		GameThroughput benchmark = new GameThroughput(policy, size[0], size[1], BoardEngine.forName(engine));
+		GameMetrics.setBoardMetrics(GameMetrics.GLOBAL);
+		// Warm up on different games from those measured
+		benchmark.run(threads, games, -games);
+		GameMetrics.GLOBAL.reset();
+		long start = System.nanoTime();
+		Totals totals = benchmark.run(threads, games, BoardCorpus.SEED);
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		Histogram.Snapshot latency = benchmark.latency.snapshot();
+		System.out.printf("policy=%s size=%dx%d engine=%s threads=%d%n", policy, size[0], size[1], engine, threads);
+		System.out.printf("%d games, %d ticks, %d moves in %.2fs%n", totals.games, totals.ticks, totals.moves,
+				elapsed);
+		System.out.printf("games/sec: %.1f  ticks/sec: %.0f  moves/sec: %.0f%n", totals.games / elapsed,
+				totals.ticks / elapsed, totals.moves / elapsed);
+		if (totals.bytes >= 0) {
+			System.out.printf("allocation: %.1f MB/sec  %.1f bytes/tick%n", totals.bytes / elapsed / (1024 * 1024),
+					(double) totals.bytes / Math.max(1, totals.ticks));
+		} else {
+			System.out.println("allocation: not available");
+		}
+		System.out.printf("tick latency (ns): p50=%d p90=%d p99=%d p99.9=%d max=%d%n", latency.getPercentile(50),
+				latency.getPercentile(90), latency.getPercentile(99), latency.getPercentile(99.9), latency.getMax());
+		System.out.println("metrics: " + GameMetrics.GLOBAL.snapshot());
+	}
+}
@@ -0,0 +1,462 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.fuzz;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import swen221.tetris.logic.BoardEngine;
+import swen221.tetris.logic.BoardView;
+import swen221.tetris.logic.Game;
+import swen221.tetris.moves.*;
+import swen221.tetris.tetromino.RandomSequence;
+import swen221.tetris.tetromino.Tetromino;
+
+/**
+ * Checks an implementation of the board against an oracle by playing random
+ * games. The oracle is normally <code>NaiveBoard</code>, which shares no logic
+ * with the optimised implementations. Two games are driven in lockstep, using
+ * the same seeded sequence of tetrominos and the same sequence of operations
+ * (i.e. clock cycles and moves). After every operation, the games must agree
+ * on whether it was applied, on the resulting position, hash, cells and column
+ * heights, and their boards must print identically. The boards are read
+ * through views (see <code>Game.getActiveView()</code>), so each game releases
+ * the boards it replaces exactly as it would otherwise. When the games disagree,
+ * the sequence of operations is shrunk to a (locally) minimal sequence which
+ * still causes them to disagree, such that the failure can be reproduced
+ * easily.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public class DifferentialFuzzer {
+	/**
+	 * Operation which clocks both games.
+	 */
+	public static final int CLOCK = 0;
+	/**
+	 * Operation which moves the active tetromino left.
+	 */
+	public static final int LEFT = 1;
+	/**
+	 * Operation which moves the active tetromino right.
+	 */
+	public static final int RIGHT = 2;
+	/**
+	 * Operation which moves the active tetromino down.
+	 */
+	public static final int DOWN = 3;
+	/**
+	 * Operation which rotates the active tetromino clockwise.
+	 */
+	public static final int ROTATE = 4;
+	/**
+	 * Operation which drops the active tetromino.
+	 */
+	public static final int DROP = 5;
+	/**
+	 * Operation which undoes the most recent step of both games. This is only
+	 * generated when the games are mutable.
+	 */
+	public static final int UNDO = 6;
+
+	/**
+	 * The moves corresponding to each operation, where <code>null</code>
+	 * indicates an operation which is not a move.
+	 */
+	private static final Move[] MOVES = { null, new MoveLeft(), new MoveRight(), new MoveDown(),
+			new ClockwiseRotation(), new DropMove(), null };
+
+	/**
+	 * The names of each operation, as used when printing a trace.
+	 */
+	private static final String[] NAMES = { "clock", "left", "right", "down", "rotate", "drop", "undo" };
+
+	/**
+	 * Describes a disagreement between the two games.
+	 */
+	public static final class Failure {
+		/**
+		 * The seed of the tetromino sequence.
+		 */
+		public final long seed;
+		/**
+		 * The operations leading to the disagreement.
+		 */
+		public final int[] trace;
+		/**
+		 * The reason for the disagreement.
+		 */
+		public final String reason;
+		/**
+		 * The oracle's board when the disagreement was found.
+		 */
+		public final String expected;
+		/**
+		 * The candidate board when the disagreement was found.
+		 */
+		public final String actual;
+
+		/**
+		 * Construct a failure.
+		 *
+		 * @param seed     The seed of the tetromino sequence.
+		 * @param trace    The operations leading to the disagreement.
+		 * @param reason   The reason for the disagreement.
+		 * @param expected The oracle's board.
+		 * @param actual   The candidate board.
+		 */
+		public Failure(long seed, int[] trace, String reason, String expected, String actual) {
+			this.seed = seed;
+			this.trace = trace;
+			this.reason = reason;
+			this.expected = expected;
+			this.actual = actual;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("seed ").append(seed).append(", ").append(trace.length).append(" steps: ").append(reason);
+			sb.append("\n");
+			for (int i = 0; i < trace.length; ++i) {
+				sb.append(i == 0 ? "" : " ").append(NAMES[trace[i]]);
+			}
+			sb.append("\nexpected:\n").append(expected).append("actual:\n").append(actual);
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Constructs the boards of the oracle's game.
+	 */
+	private final BoardEngine.Factory oracle;
+
+	/**
+	 * Constructs the boards of the game being checked.
+	 */
+	private final BoardEngine.Factory candidate;
+
+	/**
+	 * The width of the boards.
+	 */
+	private final int width;
+
+	/**
+	 * The height of the boards.
+	 */
+	private final int height;
+
+	/**
+	 * Determines whether the games are played in mutable mode.
+	 */
+	private final boolean mutable;
+
+	/**
+	 * The total number of operations performed so far, including those performed
+	 * whilst shrinking.
+	 */
+	private long steps;
+
+	/**
+	 * The cells of the oracle's board, as copied after each operation.
+	 */
+	private final byte[] expectedCells;
+
+	/**
+	 * The cells of the candidate board, as copied after each operation.
+	 */
+	private final byte[] actualCells;
+
+	/**
+	 * Construct a fuzzer for a given pair of implementations.
+	 *
+	 * @param oracle    Constructs the boards of the oracle's game.
+	 * @param candidate Constructs the boards of the game being checked.
+	 * @param width     The width (in columns) of the boards.
+	 * @param height    The height (in rows) of the boards.
+	 * @param mutable   True if the games should be played in mutable mode.
+	 */
+	public DifferentialFuzzer(BoardEngine.Factory oracle, BoardEngine.Factory candidate, int width, int height,
+			boolean mutable) {
+		this.oracle = oracle;
+		this.candidate = candidate;
+		this.width = width;
+		this.height = height;
+		this.mutable = mutable;
+		this.expectedCells = new byte[width * height];
+		this.actualCells = new byte[width * height];
+	}
+
+	/**
+	 * Get the total number of operations performed so far.
+	 *
+	 * @return The number of operations.
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Generate a random sequence of operations. This mixes individual random
+	 * operations with runs which rotate the active tetromino, shift it to a random
+	 * column and drop it. Random operations alone rarely move a tetromino far from
+	 * the centre, so without such runs lines would hardly ever be removed.
+	 *
+	 * @param seed   The seed which determines the operations.
+	 * @param length The number of operations.
+	 * @return The operations.
+	 */
+	public int[] trace(long seed, int length) {
+		Random random = new Random(~seed);
+		int[] ops = new int[length];
+		for (int i = 0; i < length;) {
+			if (random.nextBoolean()) {
+				// Place the active tetromino somewhere
+				int rotations = random.nextInt(4);
+				int shift = random.nextInt(width) - (width / 2);
+				for (int j = 0; j < rotations && i < length; ++j) {
+					ops[i++] = ROTATE;
+				}
+				for (int j = 0; j < Math.abs(shift) && i < length; ++j) {
+					ops[i++] = shift < 0 ? LEFT : RIGHT;
+				}
+				for (int j = 0; j < 3 && i < length; ++j) {
+					ops[i++] = j == 0 ? DROP : CLOCK;
+				}
+			} else {
+				int r = random.nextInt(mutable ? 8 : 7);
+				ops[i++] = r < 2 ? CLOCK : r - 1;
+			}
+		}
+		return ops;
+	}
+
+	/**
+	 * Play a random game and, if the two games disagree, shrink the operations
+	 * leading to the disagreement.
+	 *
+	 * @param seed   The seed which determines the game.
+	 * @param length The number of operations to perform.
+	 * @return The failure, or <code>null</code> if the games agreed throughout.
+	 */
+	public Failure run(long seed, int length) {
+		int[] ops = trace(seed, length);
+		int step = check(seed, ops);
+		if (step < 0) {
+			return null;
+		}
+		ops = shrink(seed, Arrays.copyOf(ops, step + 1));
+		return replay(seed, ops);
+	}
+
+	/**
+	 * Replay a given sequence of operations on both games.
+	 *
+	 * @param seed The seed of the tetromino sequence.
+	 * @param ops  The operations to perform.
+	 * @return The index of the operation after which the games first disagreed,
+	 *         or -1 if they agreed throughout.
+	 */
+	public int check(long seed, int[] ops) {
+		Game expected = game(oracle, seed);
+		Game actual = game(candidate, seed);
+		try {
+			for (int i = 0; i < ops.length; ++i) {
+				if (step(expected, actual, ops[i]) != null) {
+					return i;
+				}
+			}
+			return -1;
+		} finally {
+			expected.getActiveEngine().release();
+			actual.getActiveEngine().release();
+		}
+	}
+
+	/**
+	 * Shrink a sequence of operations on which the games disagree. This
+	 * repeatedly removes chunks of operations, keeping any removal after which
+	 * the games still disagree, and halves the chunk size until no single
+	 * operation can be removed.
+	 *
+	 * @param seed The seed of the tetromino sequence.
+	 * @param ops  The operations on which the games disagree.
+	 * @return The shrunk operations, which are no longer than those given.
+	 */
+	public int[] shrink(long seed, int[] ops) {
+		for (int chunk = Math.max(1, ops.length / 2); chunk > 0; chunk /= 2) {
+			for (int start = ops.length - chunk; start >= 0; start -= chunk) {
+				int[] candidate = new int[ops.length - chunk];
+				System.arraycopy(ops, 0, candidate, 0, start);
+				System.arraycopy(ops, start + chunk, candidate, start, candidate.length - start);
+				int step = check(seed, candidate);
+				if (step >= 0) {
+					// Still fails, so keep the shorter trace
+					ops = Arrays.copyOf(candidate, step + 1);
+					start = Math.min(start, ops.length);
+				}
+			}
+		}
+		return ops;
+	}
+
+	/**
+	 * Replay a given sequence of operations on which the games disagree, and
+	 * describe the disagreement.
+	 *
+	 * @param seed The seed of the tetromino sequence.
+	 * @param ops  The operations on which the games disagree.
+	 * @return The failure.
+	 */
+	private Failure replay(long seed, int[] ops) {
+		Game expected = game(oracle, seed);
+		Game actual = game(candidate, seed);
+		try {
+			String reason = null;
+			for (int i = 0; i < ops.length && reason == null; ++i) {
+				reason = step(expected, actual, ops[i]);
+			}
+			return new Failure(seed, ops, reason, expected.getActiveView().toString(),
+					actual.getActiveView().toString());
+		} finally {
+			expected.getActiveEngine().release();
+			actual.getActiveEngine().release();
+		}
+	}
+
+	/**
+	 * Perform a single operation on both games, and compare the outcome.
+	 *
+	 * @param expected The oracle's game.
+	 * @param actual   The game being checked.
+	 * @param op       The operation to perform.
+	 * @return The reason the games disagree, or <code>null</code> if they agree.
+	 */
+	private String step(Game expected, Game actual, int op) {
+		steps++;
+		String e = perform(expected, op);
+		String a = perform(actual, op);
+		if (!e.equals(a)) {
+			return NAMES[op] + " gave " + a + " rather than " + e;
+		}
+		BoardView eb = expected.getActiveView();
+		BoardView ab = actual.getActiveView();
+		if (eb.getHash() != ab.getHash()) {
+			return "position differs";
+		} else if (eb.getStackHeight() != ab.getStackHeight()) {
+			return "stack height differs";
+		} else if (expected.getLines() != actual.getLines() || expected.getScore() != actual.getScore()) {
+			return "lines or score differ";
+		} else if (!sameTetromino(expected.getNextTetromino(), actual.getNextTetromino())) {
+			return "next tetromino differs";
+		} else if (!eb.toString().equals(ab.toString())) {
+			return "printed board differs";
+		} else if (!Arrays.equals(eb.copyCells(expectedCells), ab.copyCells(actualCells))) {
+			return "cells differ";
+		}
+		for (int x = 0; x < width; ++x) {
+			if (eb.getColumnHeight(x) != ab.getColumnHeight(x)) {
+				return "column height differs";
+			}
+		}
+		// Start a new game when both have finished
+		if (expected.isGameOver()) {
+			if (!actual.isGameOver()) {
+				return "game over differs";
+			}
+			expected.reset();
+			actual.reset();
+		} else if (actual.isGameOver()) {
+			return "game over differs";
+		}
+		return null;
+	}
+
+	/**
+	 * Perform a single operation on a game.
+	 *
+	 * @param game The game.
+	 * @param op   The operation.
+	 * @return The outcome of the operation, which is "applied", "ignored" or the
+	 *         exception thrown.
+	 */
+	private static String perform(Game game, int op) {
+		try {
+			if (op == CLOCK) {
+				game.clock();
+			} else if (op == UNDO) {
+				game.undo();
+			} else if (!game.apply(MOVES[op])) {
+				return "ignored";
+			}
+			return "applied";
+		} catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+
+	/**
+	 * Construct a game for a given implementation.
+	 *
+	 * @param factory Constructs the boards of the game.
+	 * @param seed    The seed of the tetromino sequence.
+	 * @return The game.
+	 */
+	private Game game(BoardEngine.Factory factory, long seed) {
+		Game game = new Game(new RandomSequence(seed), width, height, factory);
+		if (mutable) {
+			game.setMutable(true);
+		}
+		return game;
+	}
+
+	/**
+	 * Check whether two tetrominos are the same.
+	 *
+	 * @param t1 The first tetromino.
+	 * @param t2 The second tetromino.
+	 * @return True if they have the same shape, orientation and colour.
+	 */
+	private static boolean sameTetromino(Tetromino t1, Tetromino t2) {
+		return t1.getName().equals(t2.getName()) && t1.getOrientation() == t2.getOrientation()
+				&& t1.getColor() == t2.getColor();
+	}
+
+	/**
+	 * Fuzz an implementation against the naive implementation for a given length
+	 * of time, reporting the first disagreement found (if any). The
+	 * arguments are the name of the implementation (see
+	 * <code>BoardEngine.forName()</code>), the number of seconds to run for, the
+	 * number of operations per game, whether the games are mutable, and the width
+	 * and height of the boards. Small boards are used by default, as lines are
+	 * removed far more often on these.
+	 *
+	 * @param args The command-line arguments.
+	 */
+	public static void main(String[] args) {
+		String engine = args.length > 0 ? args[0] : "arena";
+		long seconds = args.length > 1 ? Long.parseLong(args[1]) : 60;
+		int length = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+		boolean mutable = args.length > 3 && Boolean.parseBoolean(args[3]);
+		int width = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+		int height = args.length > 5 ? Integer.parseInt(args[5]) : 10;
+		DifferentialFuzzer fuzzer = new DifferentialFuzzer(NaiveBoard::new, BoardEngine.forName(engine), width, height,
+				mutable);
+		long start = System.nanoTime();
+		long end = start + (seconds * 1000000000L);
+		long seed = 0;
+		for (; System.nanoTime() < end; ++seed) {
+			Failure failure = fuzzer.run(seed, length);
+			if (failure != null) {
+				System.out.println(failure);
+				System.exit(1);
+			}
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d games, %d steps in %.1fs (%.0f steps/minute)%n", seed, fuzzer.getSteps(), elapsed,
+				fuzzer.getSteps() * 60 / elapsed);
+	}
+}
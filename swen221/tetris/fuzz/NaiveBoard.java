@@ -0,0 +1,377 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.fuzz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import swen221.tetris.logic.Board;
+import swen221.tetris.logic.BoardEngine;
+import swen221.tetris.tetromino.ActiveTetromino;
+import swen221.tetris.tetromino.Tetromino;
+
+/**
+ * A deliberately simple implementation of the board, which serves as the oracle
+ * when fuzzing. The board is a plain array of cells, and every query scans the
+ * cells it depends on rather than maintaining any summary (e.g. column
+ * heights). Likewise, changes are undone by restoring a complete copy of the
+ * board taken before each change. This makes it slow, but means it shares no
+ * logic with the optimised implementations it checks.
+ * <p>
+ * The only exception is the hash, which is defined by <code>Board</code> and so
+ * is computed by copying this board into one.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public final class NaiveBoard implements BoardEngine {
+	/**
+	 * The width of the board in columns.
+	 */
+	private final int width;
+
+	/**
+	 * The height of the board in rows.
+	 */
+	private final int height;
+
+	/**
+	 * The placed tetromino in each cell, in row-major order, where
+	 * <code>null</code> indicates an empty cell.
+	 */
+	private Tetromino[] cells;
+
+	/**
+	 * The active tetromino, which may be <code>null</code>.
+	 */
+	private ActiveTetromino activeTetromino;
+
+	/**
+	 * The cells and active tetromino before each change, or <code>null</code> if
+	 * changes are not being recorded.
+	 */
+	private ArrayList<Object[]> history;
+
+	/**
+	 * Create an empty board of a given size.
+	 *
+	 * @param width  The width (in columns) of the board.
+	 * @param height The height (in rows) of the board.
+	 */
+	public NaiveBoard(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.cells = new Tetromino[width * height];
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getColumnHeight(int x) {
+		if (x < 0 || x >= width) {
+			throw new IllegalArgumentException("Invalid column (" + x + ")");
+		}
+		for (int y = height - 1; y >= 0; --y) {
+			if (cells[(y * width) + x] != null) {
+				return y + 1;
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public int getStackHeight() {
+		int top = 0;
+		for (int x = 0; x < width; ++x) {
+			top = Math.max(top, getColumnHeight(x));
+		}
+		return top;
+	}
+
+	@Override
+	public ActiveTetromino getActiveTetromino() {
+		return activeTetromino;
+	}
+
+	@Override
+	public void setActiveTetromino(ActiveTetromino tetromino) {
+		save();
+		this.activeTetromino = tetromino;
+	}
+
+	@Override
+	public Tetromino getTetrominoAt(int x, int y) {
+		if (activeTetromino != null && activeTetromino.isWithin(x, y)) {
+			return activeTetromino;
+		} else {
+			return getPlacedTetrominoAt(x, y);
+		}
+	}
+
+	@Override
+	public Tetromino getPlacedTetrominoAt(int x, int y) {
+		if (x < 0 || x >= width) {
+			throw new IllegalArgumentException("Invalid column (" + x + ")");
+		}
+		if (y < 0 || y >= height) {
+			throw new IllegalArgumentException("Invalid row (" + y + ")");
+		}
+		return cells[(y * width) + x];
+	}
+
+	@Override
+	public void setPlacedTetrominoAt(int x, int y, Tetromino t) {
+		if (x < 0 || x >= width) {
+			throw new IllegalArgumentException("Invalid column (" + x + ")");
+		}
+		if (y < 0 || y >= height) {
+			throw new IllegalArgumentException("Invalid row (" + y + ")");
+		}
+		save();
+		cells[(y * width) + x] = t;
+	}
+
+	@Override
+	public byte[] copyCells(byte[] out) {
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				Tetromino t = getTetrominoAt(x, y);
+				out[(y * width) + x] = (byte) (t == null ? 0 : t.getColor().ordinal() + 1);
+			}
+		}
+		return out;
+	}
+
+	@Override
+	public void forEachOccupied(CellVisitor visitor) {
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				if (isPlaced(x, y)) {
+					visitor.visit(x, y, cells[(y * width) + x].getColor());
+				}
+			}
+		}
+		if (activeTetromino != null) {
+			ActiveTetromino t = activeTetromino;
+			for (int y = t.getMinY(); y <= t.getMaxY() && y < height; ++y) {
+				for (int x = t.getMinX(); x <= t.getMaxX(); ++x) {
+					if (t.isWithin(x, y)) {
+						visitor.visit(x, y, t.getColor());
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean canPlaceTetromino(Tetromino tetromino) {
+		ActiveTetromino t = active(tetromino);
+		for (int y = t.getMinY(); y <= t.getMaxY(); ++y) {
+			for (int x = t.getMinX(); x <= t.getMaxX(); ++x) {
+				if (t.isWithin(x, y) && (x < 0 || x >= width || y < 0 || y >= height || isPlaced(x, y))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean canMoveTetromino(int dx, int dy, int steps) {
+		if (activeTetromino == null) {
+			return false;
+		}
+		ActiveTetromino t = activeTetromino.translate(dx, dy).rotate(steps);
+		for (int y = t.getMinY(); y <= t.getMaxY(); ++y) {
+			for (int x = t.getMinX(); x <= t.getMaxX(); ++x) {
+				// NOTE: a moving tetromino may extend beyond the top of the board
+				if (t.isWithin(x, y) && (x < 0 || x >= width || y < 0 || (y < height && isPlaced(x, y)))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean CheckLanded(ActiveTetromino t) {
+		if (t == null) {
+			return false;
+		}
+		for (int y = t.getMinY(); y <= t.getMaxY(); ++y) {
+			for (int x = t.getMinX(); x <= t.getMaxX(); ++x) {
+				if (t.isWithin(x, y) && (y == 0 || (y <= height && isPlaced(x, y - 1)))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public int getDropDistance(ActiveTetromino t) {
+		int distance = 0;
+		while (!CheckLanded(t.translate(0, -distance))) {
+			distance = distance + 1;
+		}
+		return distance;
+	}
+
+	@Override
+	public void placeTetromino(Tetromino tetromino) {
+		ActiveTetromino t = active(tetromino);
+		save();
+		for (int y = t.getMinY(); y <= t.getMaxY() && y < height; ++y) {
+			for (int x = t.getMinX(); x <= t.getMaxX(); ++x) {
+				if (t.isWithin(x, y)) {
+					cells[(y * width) + x] = tetromino;
+				}
+			}
+		}
+	}
+
+	@Override
+	public int[] LineProcess() {
+		return clearLines(0, height - 1);
+	}
+
+	@Override
+	public int[] clearLines(int minY, int maxY) {
+		int[] removed = new int[height];
+		int count = 0;
+		for (int y = Math.max(minY, 0); y <= Math.min(maxY, height - 1); ++y) {
+			boolean full = true;
+			for (int x = 0; x < width; ++x) {
+				full &= isPlaced(x, y);
+			}
+			if (full) {
+				removed[count++] = y;
+			}
+		}
+		if (count > 0) {
+			save();
+			Tetromino[] next = new Tetromino[cells.length];
+			int to = 0;
+			for (int y = 0; y < height; ++y) {
+				if (Arrays.binarySearch(removed, 0, count, y) < 0) {
+					System.arraycopy(cells, y * width, next, to * width, width);
+					to = to + 1;
+				}
+			}
+			cells = next;
+		}
+		return Arrays.copyOf(removed, count);
+	}
+
+	@Override
+	public long getHash() {
+		return Board.valueOf(this).getHash();
+	}
+
+	@Override
+	public NaiveBoard copy() {
+		NaiveBoard board = new NaiveBoard(width, height);
+		board.cells = cells.clone();
+		board.activeTetromino = activeTetromino;
+		return board;
+	}
+
+	@Override
+	public void setUndoable(boolean undoable) {
+		if (!undoable) {
+			history = null;
+		} else if (history == null) {
+			history = new ArrayList<>();
+		}
+	}
+
+	@Override
+	public boolean isUndoable() {
+		return history != null;
+	}
+
+	@Override
+	public int mark() {
+		if (history == null) {
+			throw new IllegalStateException("board is not undoable");
+		}
+		return history.size();
+	}
+
+	@Override
+	public void undoTo(int mark) {
+		if (history == null || mark < 0 || mark > history.size()) {
+			throw new IllegalArgumentException("Invalid mark (" + mark + ")");
+		}
+		if (mark < history.size()) {
+			Object[] state = history.get(mark);
+			cells = (Tetromino[]) state[0];
+			activeTetromino = (ActiveTetromino) state[1];
+			history.subList(mark, history.size()).clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer res = new StringBuffer();
+		for (int y = height - 1; y >= 0; y -= 1) {
+			res.append("|");
+			for (int x = 0; x < width; x += 1) {
+				Tetromino tetromino = getTetrominoAt(x, y);
+				if (tetromino == null) {
+					res.append("_");
+				} else {
+					res.append(tetromino.getColor().toString().charAt(0));
+				}
+				res.append("|");
+			}
+			res.append("\n");
+		}
+		return res.toString();
+	}
+
+	/**
+	 * Check whether a given cell holds a placed tetromino.
+	 *
+	 * @param x The column, which must be on the board.
+	 * @param y The row, which must be on the board.
+	 * @return True if the cell is occupied.
+	 */
+	private boolean isPlaced(int x, int y) {
+		return cells[(y * width) + x] != null;
+	}
+
+	/**
+	 * Record the state of this board before a change, if changes are being
+	 * recorded.
+	 */
+	private void save() {
+		if (history != null) {
+			history.add(new Object[] { cells.clone(), activeTetromino });
+		}
+	}
+
+	/**
+	 * Position a tetromino on the board. A tetromino which is not active is
+	 * positioned at the origin.
+	 *
+	 * @param tetromino The tetromino.
+	 * @return The positioned tetromino.
+	 */
+	private static ActiveTetromino active(Tetromino tetromino) {
+		if (tetromino instanceof ActiveTetromino) {
+			return (ActiveTetromino) tetromino;
+		}
+		return new ActiveTetromino(0, 0, tetromino);
+	}
+}
@@ -13,6 +13,8 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 
 import swen221.tetris.logic.Game;
+import swen221.tetris.metrics.GameMetrics;
+import swen221.tetris.metrics.Monitoring;
 import swen221.tetris.moves.*;
 import swen221.tetris.tetromino.*;
 
@@ -26,6 +28,18 @@ import swen221.tetris.tetromino.*;
  */
 @SuppressWarnings("serial")
 public class Tetris extends JFrame {
+	/**
+	 * The statistics published for the game clock (see <code>Monitoring</code>).
+	 */
+	public interface ClockMBean {
+		/**
+		 * Get the delay between clock cycles, which is determined by the current
+		 * level.
+		 *
+		 * @return The delay (in ms).
+		 */
+		public int getDelayMillis();
+	}
 
 	/**
 	 * Main entry point for playing the game. This is responsible for creating the
@@ -58,6 +72,11 @@ public class Tetris extends JFrame {
 			next.revalidate();
 			// Construct the "clock"
 			ClockThread clock = new ClockThread(game, frame, display, next);
+			// Publish statistics for monitoring tools
+			game.setMetrics(new GameMetrics(GameMetrics.GLOBAL));
+			GameMetrics.setBoardMetrics(GameMetrics.GLOBAL);
+			Monitoring.register(game, "gui");
+			Monitoring.register("Clock", null, clock, ClockMBean.class);
 			// Start the clock
 			clock.start();
 		});
@@ -72,12 +91,22 @@ public class Tetris extends JFrame {
 	 */
 	public static JPanel createDisplayCanvas(Game game) {
 		// Initialise the game
+		// The colour of every cell, copied from the board whenever it is redrawn
+		byte[] cells = new byte[10 * 20];
 		// Create the display itself
-		JPanel display = new JPanel();
+		JPanel display = new JPanel() {
+			@Override
+			protected void validateTree() {
+				synchronized (game) {
+					game.getActiveView().copyCells(cells);
+				}
+				super.validateTree();
+			}
+		};
 		display.setLayout(new GridLayout(20, 10, 1, 1));
 		for (int row = 0; row < 20; row += 1) {
 			for (int col = 0; col < 10; col += 1) {
-				display.add(cell(col, 19 - row, game));
+				display.add(cell(col, 19 - row, cells));
 			}
 		}
 		display.setFocusable(true);
@@ -89,7 +118,7 @@ public class Tetris extends JFrame {
 				// AWT Threads). Hence, need to synchronise here.
 				synchronized (game) {
 					// Check whether active tetromino exists which we can control
-					if (game.getActiveBoard().getActiveTetromino() != null) {
+					if (game.getActiveView().getActiveTetromino() != null) {
 						switch (e.getKeyCode()) {
 						case KeyEvent.VK_UP:
 							game.apply(new ClockwiseRotation());
@@ -189,15 +218,16 @@ public class Tetris extends JFrame {
 	}
 
 	/**
-	 * Create a cell in the Tetris visualization which uses the current game to
-	 * chose its color.
+	 * Create a cell in the Tetris visualization which uses a copy of the cells of
+	 * the current board to chose its color (see <code>Board.copyCells()</code>).
 	 *
-	 * @param col  Grid column for Cell.
-	 * @param row  Grid row for Cell.
-	 * @param game The game of tetris currently being played.
+	 * @param col   Grid column for Cell.
+	 * @param row   Grid row for Cell.
+	 * @param cells The colour codes of every cell on the board, which are updated
+	 *              before the cell is validated.
 	 * @return The cell panel.
 	 */
-	public static JPanel cell(int col, int row, Game game) {
+	public static JPanel cell(int col, int row, byte[] cells) {
 		return new JPanel() {
 			{
 				this.setLayout(null);
@@ -205,11 +235,9 @@ public class Tetris extends JFrame {
 
 			@Override
 			public void validate() {
-				synchronized (game) {
-					Tetromino t = game.getActiveBoard().getTetrominoAt(col, row);
-					this.setBackground(toAwtColor(t));
-					super.validate();
-				}
+				int code = cells[(row * 10) + col];
+				this.setBackground(toAwtColor(code == 0 ? null : Tetromino.Color.of(code - 1)));
+				super.validate();
 			}
 
 			@Override
@@ -239,7 +267,7 @@ public class Tetris extends JFrame {
 			public void validate() {
 				synchronized (game) {
 					Tetromino t = game.getNextTetromino();
-					Color c = t.isWithin(col, row) ? toAwtColor(t) : Color.white;
+					Color c = t.isWithin(col, row) ? toAwtColor(t.getColor()) : Color.white;
 					this.setBackground(c);
 					super.validate();
 				}
@@ -253,17 +281,17 @@ public class Tetris extends JFrame {
 	}
 
 	/**
-	 * Convert a Tetromino to an AWT color.
+	 * Convert the colour of a Tetromino to an AWT color.
 	 *
-	 * @param tetromino The Tetromino whose colour we are converting to an AWT
-	 *                  colour.
+	 * @param color The colour we are converting to an AWT colour, or
+	 *              <code>null</code> for an empty cell.
 	 * @return Return the appropriate color of the tetromino.
 	 */
-	private static Color toAwtColor(Tetromino tetromino) {
-		if (tetromino == null) {
+	private static Color toAwtColor(Tetromino.Color color) {
+		if (color == null) {
 			return java.awt.Color.WHITE;
 		} else {
-			switch (tetromino.getColor()) {
+			switch (color) {
 			case RED:
 				return java.awt.Color.RED;
 			case ORANGE:
@@ -304,25 +332,24 @@ public class Tetris extends JFrame {
 
 		@Override
 		public Tetromino next() {
-			Tetromino.Color[] colors = Tetromino.Color.values();
 			int tetromino = random.nextInt(7);
 			// NOTE: -1 here because BLACK is reserved for being stuck.
-			int color = random.nextInt(colors.length - 1);
+			Tetromino.Color color = Tetromino.Color.of(random.nextInt(Tetromino.Color.count() - 1));
 			switch (tetromino) {
 			case 0:
-				return new Z_Tetromino(Tetromino.Orientation.NORTH, colors[color]);
+				return Z_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
 			case 1:
-				return new S_Tetromino(Tetromino.Orientation.NORTH, colors[color]);
+				return S_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
 			case 2:
-				return new T_Tetromino(Tetromino.Orientation.NORTH, colors[color]);
+				return T_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
 			case 3:
-				return new J_Tetromino(Tetromino.Orientation.NORTH, colors[color]);
+				return J_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
 			case 4:
-				return new L_Tetromino(Tetromino.Orientation.NORTH, colors[color]);
+				return L_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
 			case 5:
-				return new O_Tetromino(colors[color]);
+				return O_Tetromino.valueOf(color);
 			case 6:
-				return new I_Tetromino(Tetromino.Orientation.NORTH, colors[color]);
+				return I_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
 			default:
 				throw new IllegalArgumentException("invalid tetromino");
 			}
@@ -336,7 +363,7 @@ public class Tetris extends JFrame {
 	 * @author David J. Pearce
 	 *
 	 */
-	private static class ClockThread extends Thread {
+	private static class ClockThread extends Thread implements ClockMBean {
 		/**
 		 * Identifies the game currently being played.
 		 */
@@ -367,6 +394,11 @@ public class Tetris extends JFrame {
 			this.panels = panels;
 		}
 
+		@Override
+		public int getDelayMillis() {
+			return delayMillis;
+		}
+
 		@Override
 		public void run() {
 			while (1 == 1) {
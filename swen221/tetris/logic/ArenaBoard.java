@@ -0,0 +1,1070 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.logic;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import swen221.tetris.metrics.GameMetrics;
+import swen221.tetris.tetromino.*;
+import swen221.tetris.tetromino.Tetromino.Color;
+import swen221.tetris.tetromino.Tetromino.Orientation;
+
+/**
+ * A board whose contents are held off-heap in a slot of a
+ * <code>BoardArena</code>. This provides the same operations as
+ * <code>Board</code>, but each operation reads and writes the slot directly. A
+ * slot holds the stack height, the state of the active tetromino, the hash of
+ * the placed cells, the key of each row, the height of each column, the number
+ * of occupied cells in each row and then the colour code of every cell in
+ * row-major order. Since rows are contiguous, removing lines moves whole blocks
+ * of memory at once. The hash is maintained as cells are written, in the same
+ * way as for <code>Board</code>.
+ * <p>
+ * The active tetromino is recorded by its kind, orientation, colour and
+ * position, so only the builtin kinds of tetromino can be active. Boards must be
+ * released explicitly, after which they must not be used. When changes are
+ * being recorded, each write to the slot records the value it overwrote, such
+ * that changes can be undone in place. Undoing the write of a cell also undoes
+ * its effect on the row count, row key and hash.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public final class ArenaBoard implements BoardEngine {
+	/**
+	 * Returned by <code>LineProcess()</code> when no rows are removed.
+	 */
+	private static final int[] NO_ROWS = new int[0];
+
+	/**
+	 * The names of the kinds of tetromino which can be active, where a kind is
+	 * recorded as its index in this string.
+	 */
+	private static final String KINDS = "IJLOSTZ";
+
+	/**
+	 * Offset of the stack height within a slot.
+	 */
+	private static final int TOP = 0;
+	/**
+	 * Offset of the active tetromino's kind, orientation and colour within a slot.
+	 * This is zero when there is no active tetromino.
+	 */
+	private static final int ACTIVE = 4;
+	/**
+	 * Offset of the active tetromino's column within a slot.
+	 */
+	private static final int ACTIVE_X = 8;
+	/**
+	 * Offset of the active tetromino's row within a slot.
+	 */
+	private static final int ACTIVE_Y = 12;
+	/**
+	 * Offset of the hash of the placed cells within a slot, which excludes the
+	 * active tetromino.
+	 */
+	private static final int HASH = 16;
+	/**
+	 * Offset of the row keys within a slot, which are followed by the column
+	 * heights, the row counts and then the cells.
+	 */
+	private static final int KEYS = 24;
+
+	/**
+	 * Journal tag for an overwritten cell, recorded along with its offset and old
+	 * colour code.
+	 */
+	private static final int UNDO_BYTE = 0;
+	/**
+	 * Journal tag for an overwritten int, recorded along with its offset and old
+	 * value.
+	 */
+	private static final int UNDO_INT = 1;
+	/**
+	 * Journal tag for a change of active tetromino.
+	 */
+	private static final int UNDO_ACTIVE = 2;
+	/**
+	 * Journal tag for a set of removed rows, recorded along with their indices,
+	 * their contents, the old stack height and the old hash.
+	 */
+	private static final int UNDO_LINES = 3;
+
+	/**
+	 * The arena this board was allocated from.
+	 */
+	private final BoardArena arena;
+
+	/**
+	 * The slot of the arena occupied by this board.
+	 */
+	private final int slot;
+
+	/**
+	 * The chunk of memory holding this board's slot.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * The offset of the row keys within the chunk.
+	 */
+	private final int keys;
+
+	/**
+	 * The offset of the column heights within the chunk.
+	 */
+	private final int heights;
+
+	/**
+	 * The offset of the row counts within the chunk.
+	 */
+	private final int counts;
+
+	/**
+	 * The offset of the cells within the chunk.
+	 */
+	private final int cells;
+
+	/**
+	 * The offset of this board's slot within the chunk.
+	 */
+	private final int base;
+
+	/**
+	 * The width of the board in columns.
+	 */
+	private final int width;
+
+	/**
+	 * The height of the board in rows.
+	 */
+	private final int height;
+
+	/**
+	 * The active tetromino, decoded from the slot. This is kept to avoid decoding
+	 * the slot on every access.
+	 */
+	private ActiveTetromino activeTetromino;
+
+	/**
+	 * Records every change made to this board so that it can be undone, or
+	 * <code>null</code> if changes are not being recorded.
+	 */
+	private Journal journal;
+
+	/**
+	 * Construct a view of a given slot in an arena.
+	 *
+	 * @param arena  The arena.
+	 * @param slot   The slot.
+	 * @param buffer The chunk holding the slot.
+	 * @param base   The offset of the slot within the chunk.
+	 */
+	ArenaBoard(BoardArena arena, int slot, ByteBuffer buffer, int base) {
+		this.arena = arena;
+		this.slot = slot;
+		this.buffer = buffer;
+		this.base = base;
+		this.width = arena.getWidth();
+		this.height = arena.getHeight();
+		this.keys = base + KEYS;
+		this.heights = keys + (8 * height);
+		this.counts = heights + (4 * width);
+		this.cells = counts + (4 * height);
+		this.activeTetromino = decode();
+	}
+
+	/**
+	 * Determine the size of the slot needed for a board of a given size.
+	 *
+	 * @param width  The width (in columns) of the board.
+	 * @param height The height (in rows) of the board.
+	 * @return The size in bytes, which is a multiple of eight.
+	 */
+	static long slotSize(int width, int height) {
+		return (KEYS + (8L * height) + (4L * width) + (4L * height) + ((long) width * height) + 7) & ~7L;
+	}
+
+	/**
+	 * Get the arena this board was allocated from.
+	 *
+	 * @return The arena.
+	 */
+	public BoardArena getArena() {
+		return arena;
+	}
+
+	/**
+	 * Overwrite this board with the contents of another board from the same
+	 * arena. This is not recorded, even if changes to this board are being
+	 * recorded.
+	 *
+	 * @param other The board being copied.
+	 */
+	public void copyFrom(ArenaBoard other) {
+		if (other.arena != arena) {
+			throw new IllegalArgumentException("Invalid board");
+		}
+		copy(other.buffer, other.base, buffer, base, arena.getSlotSize());
+		this.activeTetromino = other.activeTetromino;
+	}
+
+	/**
+	 * Return this board's memory to its arena. The board must not be used after
+	 * this.
+	 */
+	@Override
+	public void release() {
+		if (buffer == null) {
+			throw new IllegalStateException("board already released");
+		}
+		buffer = null;
+		activeTetromino = null;
+		arena.release(slot);
+	}
+
+	/**
+	 * Get the width in columns of this board.
+	 *
+	 * @return The width (in columns).
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get the height in rows of this board.
+	 *
+	 * @return The height (in rows).
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Get the height of a given column. This is one more than the highest row in
+	 * that column which holds a placed tetromino, or zero if the column is empty.
+	 *
+	 * @param x The column of interest.
+	 * @return The height of the column.
+	 */
+	public int getColumnHeight(int x) {
+		if (x < 0 || x >= width) {
+			throw new IllegalArgumentException("Invalid column (" + x + ")");
+		}
+		return height(x);
+	}
+
+	/**
+	 * Get the height of the stack of placed tetrominos. This is one more than the
+	 * highest row holding a placed tetromino, or zero if the board is empty.
+	 *
+	 * @return The height of the stack.
+	 */
+	public int getStackHeight() {
+		return buffer.getInt(base + TOP);
+	}
+
+	/**
+	 * Get the active tetromino. This may be <code>null</code> if there is no
+	 * active tetromino.
+	 *
+	 * @return The active tetromino.
+	 */
+	public ActiveTetromino getActiveTetromino() {
+		return activeTetromino;
+	}
+
+	/**
+	 * Get any tetromino (including the active one) located at a given position on
+	 * the board. Placed cells are returned as shared placeholders of the
+	 * appropriate colour.
+	 *
+	 * @param x The x-coordinate of the cell to check
+	 * @param y The y-coordinate of the cell to check
+	 * @return The tetromino, or <code>null</code> if the cell is empty.
+	 */
+	public Tetromino getTetrominoAt(int x, int y) {
+		if (activeTetromino != null && activeTetromino.isWithin(x, y)) {
+			return activeTetromino;
+		} else {
+			return getPlacedTetrominoAt(x, y);
+		}
+	}
+
+	/**
+	 * Copy the colour of every cell on the board (including those of the active
+	 * tetromino) into a given array. The cell at <code>(x,y)</code> is written to
+	 * element <code>(y * getWidth()) + x</code>, and holds zero when empty or one
+	 * more than the ordinal of its colour otherwise. Since the cells of the slot
+	 * are in the same order, the rows up to the stack are copied in one pass.
+	 *
+	 * @param out The array to copy into, which must hold at least
+	 *            <code>getWidth() * getHeight()</code> elements.
+	 * @return The array.
+	 */
+	public byte[] copyCells(byte[] out) {
+		int n = getStackHeight() * width;
+		for (int i = 0; i < n; ++i) {
+			out[i] = buffer.get(cells + i);
+		}
+		Arrays.fill(out, n, width * height, (byte) 0);
+		ActiveTetromino t = activeTetromino;
+		if (t != null) {
+			byte code = (byte) (t.getColor().ordinal() + 1);
+			Shape shape = t.getShape();
+			for (int i = 0; i < shape.size(); ++i) {
+				int y = t.getY() + shape.getY(i);
+				// NOTE: the active tetromino may extend beyond the top of the board
+				if (y < height) {
+					out[(y * width) + t.getX() + shape.getX(i)] = code;
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Visit every occupied cell on the board. The placed cells are visited first,
+	 * from the bottom row up, followed by the cells of the active tetromino (if
+	 * any) which are on the board. Rows which are empty are skipped using their
+	 * counts, and the scan of a row stops once all its occupied cells have been
+	 * visited.
+	 *
+	 * @param visitor The visitor to apply to each occupied cell.
+	 */
+	public void forEachOccupied(CellVisitor visitor) {
+		int top = getStackHeight();
+		for (int y = 0; y < top; ++y) {
+			int n = buffer.getInt(counts + (4 * y));
+			for (int x = 0; n > 0; ++x) {
+				int code = code(x, y);
+				if (code != 0) {
+					visitor.visit(x, y, Color.of(code - 1));
+					n = n - 1;
+				}
+			}
+		}
+		ActiveTetromino t = activeTetromino;
+		if (t != null) {
+			Shape shape = t.getShape();
+			for (int i = 0; i < shape.size(); ++i) {
+				int y = t.getY() + shape.getY(i);
+				if (y < height) {
+					visitor.visit(t.getX() + shape.getX(i), y, t.getColor());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Update the active tetromino for this board.
+	 *
+	 * @param tetromino The tetromino to be made active, which may be
+	 *                  <code>null</code>.
+	 */
+	public void setActiveTetromino(ActiveTetromino tetromino) {
+		if (journal != null) {
+			journal.pushRef(activeTetromino);
+			journal.push(UNDO_ACTIVE);
+		}
+		encode(tetromino);
+	}
+
+	/**
+	 * Record a given active tetromino in this board's slot.
+	 *
+	 * @param tetromino The active tetromino, which may be <code>null</code>.
+	 */
+	private void encode(ActiveTetromino tetromino) {
+		if (tetromino == null) {
+			buffer.putInt(base + ACTIVE, 0);
+		} else {
+			int kind = KINDS.indexOf(tetromino.getName());
+			if (kind < 0 || tetromino.getName().length() != 1) {
+				throw new IllegalArgumentException("Unsupported tetromino (" + tetromino.getName() + ")");
+			}
+			buffer.putInt(base + ACTIVE, ((kind + 1) << 16) | (tetromino.getOrientation().ordinal() << 8)
+					| tetromino.getColor().ordinal());
+			buffer.putInt(base + ACTIVE_X, tetromino.getX());
+			buffer.putInt(base + ACTIVE_Y, tetromino.getY());
+		}
+		this.activeTetromino = tetromino;
+	}
+
+	/**
+	 * Get the placed tetromino (if any) located at a given position on the board.
+	 * This is a shared placeholder of the colour which was placed there.
+	 *
+	 * @param x The x-coordinate of the cell to check
+	 * @param y The y-coordinate of the cell to check
+	 * @return The tetromino, or <code>null</code> if the cell is empty.
+	 */
+	public Tetromino getPlacedTetrominoAt(int x, int y) {
+		if (x < 0 || x >= width) {
+			throw new IllegalArgumentException("Invalid column (" + x + ")");
+		}
+		if (y < 0 || y >= height) {
+			throw new IllegalArgumentException("Invalid row (" + y + ")");
+		}
+		return Row.placeholder(code(x, y));
+	}
+
+	/**
+	 * Set the placed tetromino at a given position on the board. If the position is
+	 * out of bounds, an exception is raised.
+	 *
+	 * @param x The x-coordinate of the cell to update
+	 * @param y The y-coordinate of the cell to update
+	 * @param t The tetromino to place, which can be <code>null</code> if the cell
+	 *          is to be cleared.
+	 */
+	public void setPlacedTetrominoAt(int x, int y, Tetromino t) {
+		if (x < 0 || x >= width) {
+			throw new IllegalArgumentException("Invalid column (" + x + ")");
+		}
+		if (y < 0 || y >= height) {
+			throw new IllegalArgumentException("Invalid row (" + y + ")");
+		}
+		write(x, y, t == null ? 0 : t.getColor().ordinal() + 1);
+		if (t != null) {
+			setHeight(x, Math.max(height(x), y + 1));
+			setTop(Math.max(getStackHeight(), y + 1));
+		} else if (height(x) == y + 1) {
+			int h = y;
+			while (h > 0 && code(x, h - 1) == 0) {
+				h = h - 1;
+			}
+			setHeight(x, h);
+			if (getStackHeight() == y + 1) {
+				setTop(maxHeight());
+			}
+		}
+	}
+
+	/**
+	 * Check whether we can place a tetromino on the board. That is, whether or not
+	 * the cells occupied by the tetromino are on the board and currently free.
+	 *
+	 * @param tetromino The tetromino being checked.
+	 * @return True if the tetromino can be placed, false otherwise.
+	 */
+	public boolean canPlaceTetromino(Tetromino tetromino) {
+		if (tetromino instanceof ActiveTetromino) {
+			ActiveTetromino t = (ActiveTetromino) tetromino;
+			return canPlace(t.getShape(), t.getX(), t.getY(), false);
+		} else {
+			// NOTE: a tetromino which is not active is positioned at the origin.
+			return canPlace(Shape.of(tetromino, Orientation.NORTH), 0, 0, false);
+		}
+	}
+
+	/**
+	 * Probe whether the active tetromino could be translated and/or rotated by a
+	 * given amount, without modifying the board. As for <code>Board</code>, the
+	 * active tetromino may extend beyond the top of the board.
+	 *
+	 * @param dx    The amount to move in the x direction.
+	 * @param dy    The amount to move in the y direction.
+	 * @param steps Number of steps to rotate in clockwise direction.
+	 * @return True if the moved tetromino fits, false otherwise (including when
+	 *         there is no active tetromino).
+	 */
+	public boolean canMoveTetromino(int dx, int dy, int steps) {
+		ActiveTetromino t = activeTetromino;
+		if (t == null) {
+			return false;
+		}
+		Shape shape = t.getShape();
+		if (steps != 0) {
+			Tetromino rotated = t.getUnderlyingTetromino().rotate(steps);
+			shape = Shape.of(rotated, rotated.getOrientation());
+		}
+		return canPlace(shape, t.getX() + dx, t.getY() + dy, true);
+	}
+
+	/**
+	 * Check whether a given tetromino has landed. That is, whether any of its
+	 * cells rests on the floor or on a placed cell.
+	 *
+	 * @param activeTetromino The tetromino being checked.
+	 * @return True if it has landed.
+	 */
+	public boolean CheckLanded(ActiveTetromino activeTetromino) {
+		if (activeTetromino == null) {
+			return false;
+		}
+		Shape shape = activeTetromino.getShape();
+		for (int dx = shape.getMinX(); dx <= shape.getMaxX(); dx++) {
+			int bottom = shape.getBottom(dx);
+			if (bottom == Integer.MAX_VALUE) {
+				continue;
+			}
+			int x = activeTetromino.getX() + dx;
+			int y = activeTetromino.getY() + bottom;
+			int h = height(x);
+			if (y == 0 || y == h || (y > 0 && y < h && code(x, y - 1) != 0)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determine how many rows a given tetromino can fall before it lands.
+	 *
+	 * @param activeTetromino The tetromino being dropped.
+	 * @return The number of rows the tetromino can fall.
+	 */
+	public int getDropDistance(ActiveTetromino activeTetromino) {
+		Shape shape = activeTetromino.getShape();
+		int distance = Integer.MAX_VALUE;
+		for (int dx = shape.getMinX(); dx <= shape.getMaxX(); dx++) {
+			int bottom = shape.getBottom(dx);
+			if (bottom == Integer.MAX_VALUE) {
+				continue;
+			}
+			int x = activeTetromino.getX() + dx;
+			int y = activeTetromino.getY() + bottom;
+			int rest = height(x);
+			if (y < rest) {
+				// Tucked under an overhang, so find the first placed cell below
+				rest = y;
+				while (rest > 0 && code(x, rest - 1) == 0) {
+					rest = rest - 1;
+				}
+			}
+			distance = Math.min(distance, y - rest);
+		}
+		return distance;
+	}
+
+	/**
+	 * Place a given tetromino on the board by filling out each square it contains
+	 * on the board. Any squares beyond the top of the board are discarded.
+	 *
+	 * @param t tetromino to place; cannot be null
+	 */
+	public void placeTetromino(Tetromino t) {
+		Shape shape;
+		int cx = 0, cy = 0;
+		if (t instanceof ActiveTetromino) {
+			ActiveTetromino a = (ActiveTetromino) t;
+			shape = a.getShape();
+			cx = a.getX();
+			cy = a.getY();
+		} else {
+			// NOTE: a tetromino which is not active is positioned at the origin.
+			shape = Shape.of(t, Orientation.NORTH);
+		}
+		int code = t.getColor().ordinal() + 1;
+		int top = getStackHeight();
+		for (int i = 0; i < shape.size(); ++i) {
+			int x = cx + shape.getX(i);
+			int y = cy + shape.getY(i);
+			if (y < height) {
+				write(x, y, code);
+				setHeight(x, Math.max(height(x), y + 1));
+				top = Math.max(top, y + 1);
+			}
+		}
+		setTop(top);
+	}
+
+	/**
+	 * Remove all full rows from the board, moving the rows above them down.
+	 *
+	 * @return The rows which were removed, in ascending order.
+	 */
+	public int[] LineProcess() {
+		return clearLines(0, getStackHeight() - 1);
+	}
+
+	/**
+	 * Remove any full rows within a given range, moving the rows above them down.
+	 * Each run of surviving rows is moved as a single block of memory. The time
+	 * taken is recorded in the metrics of all boards, if there are any (see
+	 * <code>GameMetrics.setBoardMetrics()</code>).
+	 *
+	 * @param minY The lowest row to check.
+	 * @param maxY The highest row to check.
+	 * @return The rows which were removed, in ascending order and numbered as
+	 *         they were before removal.
+	 */
+	public int[] clearLines(int minY, int maxY) {
+		GameMetrics metrics = GameMetrics.getBoardMetrics();
+		if (metrics == null) {
+			return removeLines(minY, maxY);
+		}
+		long start = System.nanoTime();
+		int[] removed = removeLines(minY, maxY);
+		metrics.recordLineTime(System.nanoTime() - start);
+		return removed;
+	}
+
+	/**
+	 * Remove any full rows within a given range (see <code>clearLines()</code>).
+	 *
+	 * @param minY The lowest row to check.
+	 * @param maxY The highest row to check.
+	 * @return The rows which were removed.
+	 */
+	private int[] removeLines(int minY, int maxY) {
+		int top = getStackHeight();
+		minY = Math.max(minY, 0);
+		maxY = Math.min(maxY, top - 1);
+		int count = 0;
+		int[] removed = NO_ROWS;
+		for (int y = minY; y <= maxY; ++y) {
+			if (buffer.getInt(counts + (4 * y)) == width) {
+				if (count == 0) {
+					removed = new int[(maxY - y) + 1];
+				}
+				removed[count++] = y;
+			}
+		}
+		if (count == 0) {
+			return NO_ROWS;
+		}
+		long hash = buffer.getLong(base + HASH);
+		if (journal != null) {
+			// Record the removed rows so they can be reinstated
+			byte[] contents = new byte[count * width];
+			for (int i = 0; i < count; ++i) {
+				int from = cells + (removed[i] * width);
+				for (int x = 0; x < width; ++x) {
+					contents[(i * width) + x] = buffer.get(from + x);
+				}
+				journal.push(removed[i]);
+			}
+			journal.pushRef(contents);
+			journal.push(count);
+			journal.push(top);
+			journal.push((int) hash);
+			journal.push((int) (hash >>> 32));
+			journal.push(UNDO_LINES);
+		}
+		// Only rows from the lowest removed row upwards change position, and hence
+		// only their hashes change
+		for (int y = removed[0]; y < top; ++y) {
+			hash ^= rowHash(y);
+		}
+		// Compact each run of surviving rows between removed rows downwards
+		int to = removed[0];
+		for (int i = 0; i < count; ++i) {
+			int from = removed[i] + 1;
+			int n = (i + 1 < count ? removed[i + 1] : top) - from;
+			move(cells + (from * width), cells + (to * width), n * width);
+			move(counts + (4 * from), counts + (4 * to), 4 * n);
+			move(keys + (8 * from), keys + (8 * to), 8 * n);
+			to = to + n;
+		}
+		// Clear the rows vacated at the top
+		fill(cells + (to * width), cells + (top * width));
+		fill(counts + (4 * to), counts + (4 * top));
+		fill(keys + (8 * to), keys + (8 * top));
+		for (int y = removed[0]; y < to; ++y) {
+			hash ^= rowHash(y);
+		}
+		buffer.putLong(base + HASH, hash);
+		// Update the column heights
+		for (int x = 0; x < width; ++x) {
+			int h = Math.min(height(x), to);
+			while (h > 0 && code(x, h - 1) == 0) {
+				h = h - 1;
+			}
+			setHeight(x, h);
+		}
+		setTop(maxHeight());
+		return removed.length == count ? removed : Arrays.copyOf(removed, count);
+	}
+
+	/**
+	 * Get a 64-bit hash of this board's position. This is computed in the same
+	 * way as <code>Board.getHash()</code>, such that a board and its arena copy
+	 * have the same hash.
+	 *
+	 * @return The position hash.
+	 */
+	public long getHash() {
+		return buffer.getLong(base + HASH) ^ Board.hash(activeTetromino);
+	}
+
+	/**
+	 * Allocate a copy of this board from the same arena. The slot is copied in a
+	 * single bulk operation.
+	 *
+	 * @return The copy.
+	 */
+	@Override
+	public ArenaBoard copy() {
+		ArenaBoard board = arena.allocate();
+		board.copyFrom(this);
+		return board;
+	}
+
+	@Override
+	public void setUndoable(boolean undoable) {
+		if (!undoable) {
+			journal = null;
+		} else if (journal == null) {
+			journal = new Journal();
+		}
+	}
+
+	@Override
+	public boolean isUndoable() {
+		return journal != null;
+	}
+
+	@Override
+	public int mark() {
+		if (journal == null) {
+			throw new IllegalStateException("board is not undoable");
+		}
+		return journal.size();
+	}
+
+	@Override
+	public void undoTo(int mark) {
+		if (journal == null || mark < 0 || mark > journal.size()) {
+			throw new IllegalArgumentException("Invalid mark (" + mark + ")");
+		}
+		while (journal.size() > mark) {
+			switch (journal.pop()) {
+			case UNDO_BYTE: {
+				int old = journal.pop();
+				int i = journal.pop() - cells;
+				store(i % width, i / width, old);
+				break;
+			}
+			case UNDO_INT: {
+				int old = journal.pop();
+				buffer.putInt(journal.pop(), old);
+				break;
+			}
+			case UNDO_ACTIVE:
+				encode((ActiveTetromino) journal.popRef());
+				break;
+			case UNDO_LINES:
+			default:
+				undoLines();
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reinstate a set of rows recorded in the journal when they were removed. This
+	 * reverses the compaction performed by <code>clearLines()</code>. The column
+	 * heights and stack height are restored separately, since they were recorded
+	 * as individual writes.
+	 */
+	private void undoLines() {
+		long hash = ((long) journal.pop() << 32) | (journal.pop() & 0xFFFFFFFFL);
+		int oldTop = journal.pop();
+		int count = journal.pop();
+		byte[] contents = (byte[]) journal.popRef();
+		int next = oldTop;
+		for (int i = count - 1; i >= 0; --i) {
+			int y = journal.peek(count - 1 - i);
+			// Move back the run of surviving rows above this row
+			int n = next - (y + 1);
+			move(cells + ((y - i) * width), cells + ((y + 1) * width), n * width);
+			move(counts + (4 * (y - i)), counts + (4 * (y + 1)), 4 * n);
+			move(keys + (8 * (y - i)), keys + (8 * (y + 1)), 8 * n);
+			// Reinstate the removed row, which was necessarily full
+			int to = cells + (y * width);
+			long key = 0;
+			for (int x = 0; x < width; ++x) {
+				byte code = contents[(i * width) + x];
+				buffer.put(to + x, code);
+				key ^= Row.key(x, code);
+			}
+			buffer.putInt(counts + (4 * y), width);
+			buffer.putLong(keys + (8 * y), key);
+			next = y;
+		}
+		for (int i = 0; i < count; ++i) {
+			journal.pop();
+		}
+		buffer.putLong(base + HASH, hash);
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer res = new StringBuffer();
+		for (int y = height - 1; y >= 0; y -= 1) {
+			res.append("|");
+			for (int x = 0; x < width; x += 1) {
+				Tetromino tetromino = getTetrominoAt(x, y);
+				if (tetromino == null) {
+					res.append("_");
+				} else {
+					res.append(tetromino.getColor().toString().charAt(0));
+				}
+				res.append("|");
+			}
+			res.append("\n");
+		}
+		return res.toString();
+	}
+
+	/**
+	 * Check whether a given shape can be placed at a given position.
+	 *
+	 * @param shape The shape being checked.
+	 * @param cx    The column on which the shape is centered.
+	 * @param cy    The row on which the shape is centered.
+	 * @param above True if cells beyond the top of the board are allowed.
+	 * @return True if the shape can be placed, false otherwise.
+	 */
+	private boolean canPlace(Shape shape, int cx, int cy, boolean above) {
+		if (cx + shape.getMinX() < 0 || cx + shape.getMaxX() >= width || cy + shape.getMinY() < 0
+				|| (!above && cy + shape.getMaxY() >= height)) {
+			return false;
+		}
+		for (int i = 0; i < shape.size(); ++i) {
+			int y = cy + shape.getY(i);
+			if (y < height && code(cx + shape.getX(i), y) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the colour code of a given cell, which must be within the board.
+	 *
+	 * @param x The column.
+	 * @param y The row.
+	 * @return The colour code, which is zero for an empty cell.
+	 */
+	private int code(int x, int y) {
+		return buffer.get(cells + (y * width) + x);
+	}
+
+	/**
+	 * Overwrite the colour code of a given cell, recording the change if
+	 * required.
+	 *
+	 * @param x    The column.
+	 * @param y    The row.
+	 * @param code The new colour code.
+	 */
+	private void write(int x, int y, int code) {
+		int i = cells + (y * width) + x;
+		int old = buffer.get(i);
+		if (old != code) {
+			if (journal != null) {
+				journal.push(i);
+				journal.push(old);
+				journal.push(UNDO_BYTE);
+			}
+			store(x, y, code);
+		}
+	}
+
+	/**
+	 * Overwrite the colour code of a given cell, keeping the row count, row key
+	 * and hash in sync. This is not recorded.
+	 *
+	 * @param x    The column.
+	 * @param y    The row.
+	 * @param code The new colour code.
+	 */
+	private void store(int x, int y, int code) {
+		int i = cells + (y * width) + x;
+		int old = buffer.get(i);
+		int c = counts + (4 * y);
+		int k = keys + (8 * y);
+		int n = buffer.getInt(c);
+		long key = buffer.getLong(k);
+		long hash = buffer.getLong(base + HASH) ^ rowHash(y);
+		if (old != 0) {
+			key ^= Row.key(x, old);
+			n = n - 1;
+		}
+		if (code != 0) {
+			key ^= Row.key(x, code);
+			n = n + 1;
+		}
+		buffer.put(i, (byte) code);
+		buffer.putInt(c, n);
+		buffer.putLong(k, key);
+		buffer.putLong(base + HASH, hash ^ rowHash(y));
+	}
+
+	/**
+	 * Determine the hash of a given row at its current position (see
+	 * <code>Board.hash()</code>).
+	 *
+	 * @param y The row.
+	 * @return The hash, which is zero for an empty row.
+	 */
+	private long rowHash(int y) {
+		return buffer.getInt(counts + (4 * y)) == 0 ? 0 : Board.hash(y, buffer.getLong(keys + (8 * y)));
+	}
+
+	/**
+	 * Get the height of a given column.
+	 *
+	 * @param x The column.
+	 * @return The height.
+	 */
+	private int height(int x) {
+		return buffer.getInt(heights + (4 * x));
+	}
+
+	/**
+	 * Set the height of a given column.
+	 *
+	 * @param x The column.
+	 * @param h The height.
+	 */
+	private void setHeight(int x, int h) {
+		putInt(heights + (4 * x), h);
+	}
+
+	/**
+	 * Set the height of the stack.
+	 *
+	 * @param h The height.
+	 */
+	private void setTop(int h) {
+		putInt(base + TOP, h);
+	}
+
+	/**
+	 * Overwrite an int in the chunk, recording the change if required.
+	 *
+	 * @param offset The offset of the int.
+	 * @param value  The new value.
+	 */
+	private void putInt(int offset, int value) {
+		int old = buffer.getInt(offset);
+		if (old != value) {
+			if (journal != null) {
+				journal.push(offset);
+				journal.push(old);
+				journal.push(UNDO_INT);
+			}
+			buffer.putInt(offset, value);
+		}
+	}
+
+	/**
+	 * Determine the largest of the column heights.
+	 *
+	 * @return The largest height.
+	 */
+	private int maxHeight() {
+		int m = 0;
+		for (int x = 0; x < width; ++x) {
+			m = Math.max(m, height(x));
+		}
+		return m;
+	}
+
+	/**
+	 * Move a block of bytes within the chunk, where the source and destination
+	 * may overlap.
+	 *
+	 * @param from   The offset of the source.
+	 * @param to     The offset of the destination.
+	 * @param length The number of bytes.
+	 */
+	private void move(int from, int to, int length) {
+		copy(buffer, from, buffer, to, length);
+	}
+
+	/**
+	 * Copy a block of bytes between two chunks, or within the same chunk, eight
+	 * bytes at a time. If the source and destination overlap, the block is copied
+	 * in the direction which reads each byte before it is overwritten.
+	 *
+	 * @param src    The source chunk.
+	 * @param from   The offset of the source.
+	 * @param dst    The destination chunk.
+	 * @param to     The offset of the destination.
+	 * @param length The number of bytes.
+	 */
+	private static void copy(ByteBuffer src, int from, ByteBuffer dst, int to, int length) {
+		int tail = length & 7;
+		if (from >= to || src != dst) {
+			int i = 0;
+			for (; i < length - tail; i += 8) {
+				dst.putLong(to + i, src.getLong(from + i));
+			}
+			for (; i < length; ++i) {
+				dst.put(to + i, src.get(from + i));
+			}
+		} else {
+			int i = length;
+			for (; i > length - tail; --i) {
+				dst.put(to + i - 1, src.get(from + i - 1));
+			}
+			for (; i > 0; i -= 8) {
+				dst.putLong(to + i - 8, src.getLong(from + i - 8));
+			}
+		}
+	}
+
+	/**
+	 * Zero a block of bytes within the chunk, eight bytes at a time.
+	 *
+	 * @param from The offset of the first byte (inclusive).
+	 * @param to   The offset of the last byte (exclusive).
+	 */
+	private void fill(int from, int to) {
+		int i = from;
+		for (; i <= to - 8; i += 8) {
+			buffer.putLong(i, 0);
+		}
+		for (; i < to; ++i) {
+			buffer.put(i, (byte) 0);
+		}
+	}
+
+	/**
+	 * Decode the active tetromino recorded in this board's slot.
+	 *
+	 * @return The active tetromino, or <code>null</code> if there is none.
+	 */
+	private ActiveTetromino decode() {
+		int active = buffer.getInt(base + ACTIVE);
+		if (active == 0) {
+			return null;
+		}
+		Orientation orientation = Orientation.of((active >> 8) & 0xFF);
+		Color color = Color.of(active & 0xFF);
+		Tetromino t;
+		switch (KINDS.charAt((active >> 16) - 1)) {
+		case 'I':
+			t = I_Tetromino.valueOf(orientation, color);
+			break;
+		case 'J':
+			t = J_Tetromino.valueOf(orientation, color);
+			break;
+		case 'L':
+			t = L_Tetromino.valueOf(orientation, color);
+			break;
+		case 'O':
+			t = O_Tetromino.valueOf(color);
+			break;
+		case 'S':
+			t = S_Tetromino.valueOf(orientation, color);
+			break;
+		case 'T':
+			t = T_Tetromino.valueOf(orientation, color);
+			break;
+		default:
+			t = Z_Tetromino.valueOf(orientation, color);
+			break;
+		}
+		return new ActiveTetromino(buffer.getInt(base + ACTIVE_X), buffer.getInt(base + ACTIVE_Y), t);
+	}
+}
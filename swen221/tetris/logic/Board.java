@@ -6,18 +6,68 @@ package swen221.tetris.logic;
 import java.util.Arrays;
 import java.util.Iterator;
 
+import swen221.tetris.metrics.GameMetrics;
 import swen221.tetris.tetromino.ActiveTetromino;
+import swen221.tetris.tetromino.Shape;
 import swen221.tetris.tetromino.Tetromino;
+import swen221.tetris.tetromino.Tetromino.Color;
+import swen221.tetris.tetromino.Tetromino.Orientation;
 
 /**
  * A Board instance represent a board configuration for a game of Tetris. It is
  * represented as an array of rows, where every row contains a given number of
- * columns.
+ * columns. Rows are immutable and shared between boards, such that copying a
+ * board does not copy its contents. Instead, a copied board shares its row
+ * table with the original until either is updated, at which point the table
+ * (but not the rows themselves) is copied. The row table covers only the rows
+ * which have been used, so the memory needed for a board scales with the height
+ * of its stack rather than the height of the board. Every row above the table
+ * is empty.
  *
  * @author David J. Pearce
  * @author Marco Servetto
  */
-public class Board {
+public class Board implements BoardEngine {
+	/**
+	 * Returned by <code>LineProcess()</code> when no rows are removed.
+	 */
+	private static final int[] NO_ROWS = new int[0];
+
+	/**
+	 * Journal tag for an overwritten row, recorded along with its index and its
+	 * old contents.
+	 */
+	private static final int UNDO_ROW = 0;
+	/**
+	 * Journal tag for a change of active tetromino.
+	 */
+	private static final int UNDO_ACTIVE = 1;
+	/**
+	 * Journal tag for a set of removed rows, recorded along with their indices,
+	 * their contents, the old column heights and the old stack height.
+	 */
+	private static final int UNDO_LINES = 2;
+	/**
+	 * Journal tag for a change of column height, recorded along with the column and
+	 * its old height.
+	 */
+	private static final int UNDO_HEIGHT = 3;
+	/**
+	 * Journal tag for a change of stack height, recorded along with the old stack
+	 * height.
+	 */
+	private static final int UNDO_TOP = 4;
+	/**
+	 * Journal tag for a set of inserted rows, recorded along with the number of
+	 * rows and the old column heights.
+	 */
+	private static final int UNDO_INSERT = 5;
+
+	/**
+	 * The number of rows initially allocated in the row table.
+	 */
+	private static final int INITIAL_ROWS = 32;
+
 	/**
 	 * The width of the board in columns.
 	 */
@@ -28,16 +78,61 @@ public class Board {
 	private final int height;
 
 	/**
-	 * A row-major representation of the board. Each location contains a reference
-	 * to the tetromino located there.
+	 * The empty row for this board's width, which is used to fill rows vacated
+	 * when lines are removed.
+	 */
+	private final Row empty;
+
+	/**
+	 * The rows of the board, starting from the bottom. Each row records the
+	 * colour of the tetromino (if any) placed in each column. This table may be shared
+	 * with other boards, in which case it must be copied before being updated. The
+	 * table grows as rows are written, and every row beyond its end is empty.
 	 */
-	private final Tetromino[] cells;
+	private Row[] rows;
+
+	/**
+	 * The height of each column, which is one more than the highest row in that
+	 * column holding a placed tetromino (or zero if the column is empty). As for
+	 * <code>rows</code>, this may be shared with other boards.
+	 */
+	private int[] heights;
+
+	/**
+	 * Indicates whether <code>rows</code> and <code>heights</code> are shared with
+	 * another board, and so must be copied before being updated.
+	 */
+	private boolean shared;
+
+	/**
+	 * The height of the stack of placed tetrominos, which is the largest of the
+	 * column heights. Every row at or above this is empty.
+	 */
+	private int top;
 
 	/**
 	 * The active tetromino is the one currently being controlled.
 	 */
 	private ActiveTetromino activeTetromino;
 
+	/**
+	 * A Zobrist-style hash of the placed tetrominos, computed by combining a key
+	 * for each non-empty row using exclusive-or. This is maintained incrementally
+	 * as rows are updated.
+	 */
+	private long hash;
+
+	/**
+	 * A hash of the active tetromino, or zero if there is none.
+	 */
+	private long activeHash;
+
+	/**
+	 * Records every change made to this board so that it can be undone, or
+	 * <code>null</code> if changes are not being recorded.
+	 */
+	private Journal journal;
+
 	/**
 	 * Create a new game board for a given sequence of tetromino.
 	 *
@@ -46,21 +141,80 @@ public class Board {
 	 * @param height   The height (in rows) of the board.
 	 */
 	public Board(Iterator<Tetromino> sequence, int width, int height) {
+		this(width, height);
+	}
+
+	/**
+	 * Create a new empty game board of a given size.
+	 *
+	 * @param width  The width (in columns) of the board.
+	 * @param height The height (in rows) of the board.
+	 */
+	public Board(int width, int height) {
 		this.width = width;
 		this.height = height;
-		this.cells = new Tetromino[width * height];
+		this.empty = Row.empty(width);
+		this.rows = new Row[Math.min(height, INITIAL_ROWS)];
+		Arrays.fill(rows, empty);
+		this.heights = new int[width];
+		recordAllocated();
 	}
 
 	/**
-	 * Create an identical copy of a given board.
+	 * Create an identical copy of a given board. This takes constant time, since
+	 * the copy shares its rows with the original. Both boards remain independent,
+	 * since whichever is updated first makes its own copy of the row table.
 	 *
 	 * @param other The board being copied.
 	 */
 	public Board(Board other) {
 		this.width = other.width;
 		this.height = other.height;
-		this.cells = Arrays.copyOf(other.cells, other.cells.length);
+		this.empty = other.empty;
+		this.rows = other.rows;
+		this.heights = other.heights;
+		this.top = other.top;
+		this.shared = true;
 		this.activeTetromino = other.activeTetromino;
+		this.hash = other.hash;
+		this.activeHash = other.activeHash;
+		other.shared = true;
+		recordAllocated();
+	}
+
+	/**
+	 * Create a copy of a given board, which may use any implementation. If it is
+	 * already a <code>Board</code>, it is returned as is.
+	 *
+	 * @param board The board being copied.
+	 * @return The copy.
+	 */
+	public static Board valueOf(BoardView board) {
+		if (board instanceof Board) {
+			return (Board) board;
+		}
+		Board copy = new Board(board.getWidth(), board.getHeight());
+		for (int y = 0; y < board.getStackHeight(); ++y) {
+			for (int x = 0; x < copy.width; ++x) {
+				Tetromino t = board.getPlacedTetrominoAt(x, y);
+				if (t != null) {
+					copy.setPlacedTetrominoAt(x, y, t);
+				}
+			}
+		}
+		copy.setActiveTetromino(board.getActiveTetromino());
+		return copy;
+	}
+
+	/**
+	 * Create a copy of this board, which takes constant time (see
+	 * <code>Board(Board)</code>).
+	 *
+	 * @return The copy.
+	 */
+	@Override
+	public Board copy() {
+		return new Board(this);
 	}
 
 	/**
@@ -81,6 +235,139 @@ public class Board {
 		return height;
 	}
 
+	/**
+	 * Get the height of a given column. This is one more than the highest row in
+	 * that column which holds a placed tetromino, or zero if the column is empty.
+	 * Note that there may be empty cells below this row.
+	 *
+	 * @param x The column of interest.
+	 * @return The height of the column.
+	 */
+	public int getColumnHeight(int x) {
+		if (x < 0 || x >= width) {
+			throw new IllegalArgumentException("Invalid column (" + x + ")");
+		}
+		return heights[x];
+	}
+
+	/**
+	 * Get the height of the stack of placed tetrominos. This is one more than the
+	 * highest row holding a placed tetromino, or zero if the board is empty.
+	 *
+	 * @return The height of the stack.
+	 */
+	public int getStackHeight() {
+		return top;
+	}
+
+	/**
+	 * Get the placed cells of a given row as a bitmask, where bit <code>x</code>
+	 * is set when column <code>x</code> holds a placed tetromino. Only the first
+	 * 64 columns are covered, and wider boards should use
+	 * <code>getRowMask(y,word)</code>.
+	 *
+	 * @param y The row of interest.
+	 * @return The row mask.
+	 */
+	public long getRowMask(int y) {
+		return getRowMask(y, 0);
+	}
+
+	/**
+	 * Get one word of the bitmask of placed cells in a given row, where bit
+	 * <code>i</code> is set when column <code>(64 * word) + i</code> holds a placed
+	 * tetromino.
+	 *
+	 * @param y    The row of interest.
+	 * @param word The word of interest.
+	 * @return The requested word of the row mask.
+	 */
+	public long getRowMask(int y, int word) {
+		if (y < 0 || y >= height) {
+			throw new IllegalArgumentException("Invalid row (" + y + ")");
+		}
+		if (word < 0 || word > ((width - 1) >>> 6)) {
+			throw new IllegalArgumentException("Invalid word (" + word + ")");
+		}
+		return row(y).getWord(word);
+	}
+
+	/**
+	 * Copy the height of every column into a given array.
+	 *
+	 * @param out The array to copy into, which must hold at least
+	 *            <code>getWidth()</code> elements.
+	 * @return The array.
+	 */
+	public int[] getColumnHeights(int[] out) {
+		System.arraycopy(heights, 0, out, 0, width);
+		return out;
+	}
+
+	/**
+	 * Copy the colour of every cell on the board (including those of the active
+	 * tetromino) into a given array. The cell at <code>(x,y)</code> is written to
+	 * element <code>(y * getWidth()) + x</code>, and holds zero when empty or one
+	 * more than the ordinal of its colour otherwise. Each row is copied in bulk,
+	 * and rows above the stack are simply cleared.
+	 *
+	 * @param out The array to copy into, which must hold at least
+	 *            <code>getWidth() * getHeight()</code> elements.
+	 * @return The array.
+	 */
+	public byte[] copyCells(byte[] out) {
+		int n = Math.min(top, rows.length);
+		for (int y = 0; y < n; ++y) {
+			rows[y].copyTo(out, y * width);
+		}
+		Arrays.fill(out, n * width, width * height, (byte) 0);
+		ActiveTetromino t = activeTetromino;
+		if (t != null) {
+			byte code = (byte) (t.getColor().ordinal() + 1);
+			Shape shape = t.getShape();
+			for (int i = 0; i < shape.size(); ++i) {
+				int y = t.getY() + shape.getY(i);
+				// NOTE: the active tetromino may extend beyond the top of the board
+				if (y < height) {
+					out[(y * width) + t.getX() + shape.getX(i)] = code;
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Visit every occupied cell on the board. The placed cells are visited first,
+	 * from the bottom row up, followed by the cells of the active tetromino (if
+	 * any) which are on the board. Empty cells are skipped a word at a time, so
+	 * the cost depends on the number of occupied cells rather than the size of
+	 * the board.
+	 *
+	 * @param visitor The visitor to apply to each occupied cell.
+	 */
+	public void forEachOccupied(CellVisitor visitor) {
+		int words = (width + 63) >>> 6;
+		for (int y = 0; y < top; ++y) {
+			Row row = rows[y];
+			for (int i = 0; i < words; ++i) {
+				for (long bits = row.getWord(i); bits != 0; bits &= bits - 1) {
+					int x = (i << 6) + Long.numberOfTrailingZeros(bits);
+					visitor.visit(x, y, Color.of(row.getCode(x) - 1));
+				}
+			}
+		}
+		ActiveTetromino t = activeTetromino;
+		if (t != null) {
+			Shape shape = t.getShape();
+			for (int i = 0; i < shape.size(); ++i) {
+				int y = t.getY() + shape.getY(i);
+				if (y < height) {
+					visitor.visit(t.getX() + shape.getX(i), y, t.getColor());
+				}
+			}
+		}
+	}
+
 	/**
 	 * Get the active tetromino. This is the tetromino currently being manipulated
 	 * on the board. This may be <code>null</code> if there is no active tetromino.
@@ -117,14 +404,21 @@ public class Board {
 	 * @param tetromino The tetromino to be made active.
 	 */
 	public void setActiveTetromino(ActiveTetromino tetromino) {
+		if (journal != null) {
+			journal.pushRef(activeTetromino);
+			journal.push(UNDO_ACTIVE);
+		}
 		// Update the active tetromino
 		this.activeTetromino = tetromino;
+		this.activeHash = hash(tetromino);
 	}
 
 	/**
 	 * Get the placed tetromino (if any) located at a given position on the board.
 	 * If the position is out of bounds, an exception is raised. Likewise, if no
 	 * tetromino exists at that position then <code>null</code> is returned.
+	 * Since only colours are stored for placed cells, the tetromino returned is a
+	 * shared placeholder of the colour which was placed there.
 	 *
 	 * @param x The x-coordinate of the cell to check
 	 * @param y The y-coordinate of the cell to check
@@ -138,7 +432,7 @@ public class Board {
 			throw new IllegalArgumentException("Invalid row (" + y + ")");
 		}
 		// Not part of active tetromino, so try placed ones.
-		return cells[(y * width) + x];
+		return row(y).get(x);
 	}
 
 	/**
@@ -157,7 +451,21 @@ public class Board {
 		if (y < 0 || y >= height) {
 			throw new IllegalArgumentException("Invalid row (" + y + ")");
 		}
-		cells[(y * width) + x] = t;
+		writeRow(y, row(y).fill(x, 1, t));
+		// Update the column height
+		if (t != null) {
+			setColumnHeight(x, Math.max(heights[x], y + 1));
+			setStackHeight(Math.max(top, y + 1));
+		} else if (heights[x] == y + 1) {
+			int h = y;
+			while (h > 0 && !isOccupied(x, h - 1)) {
+				h = h - 1;
+			}
+			setColumnHeight(x, h);
+			if (top == y + 1) {
+				setStackHeight(max(heights));
+			}
+		}
 	}
 
 	/**
@@ -171,75 +479,310 @@ public class Board {
 	 * @return True if the tetromino can be placed, false otherwise.
 	 */
 	public boolean canPlaceTetromino(Tetromino tetromino) {
-		Rectangle r = tetromino.getBoundingBox();
-		//
-		for (int x = r.getMinX(); x <= r.getMaxX(); ++x) {
-			for (int y = r.getMinY(); y <= r.getMaxY(); ++y) {
-				int id = (y * width) + x;
-				if (tetromino.isWithin(x, y) && (id < 0 || id >= cells.length || cells[id] != null)) {
-					return false;
-				}
-			}
+		if (tetromino instanceof ActiveTetromino) {
+			ActiveTetromino t = (ActiveTetromino) tetromino;
+			return canPlace(t.getShape(), t.getX(), t.getY(), false);
+		} else {
+			// NOTE: a tetromino which is not active is positioned at the origin.
+			return canPlace(Shape.of(tetromino, Orientation.NORTH), 0, 0, false);
 		}
-		return true;
 	}
 
+	/**
+	 * Probe whether the active tetromino could be translated and/or rotated by a
+	 * given amount. That is, whether none of the cells it would then occupy are
+	 * beyond the left, right or bottom edges of the board, or used by a placed
+	 * tetromino. As for the original moves, the active tetromino may extend
+	 * beyond the top of the board. This neither modifies nor copies the board,
+	 * and does not allocate.
+	 *
+	 * @param dx    The amount to move in the x direction.
+	 * @param dy    The amount to move in the y direction.
+	 * @param steps Number of steps to rotate in clockwise direction, where
+	 *              negative values go in the anti-clockwise direction.
+	 * @return True if the moved tetromino fits, false otherwise (including when
+	 *         there is no active tetromino).
+	 */
+	public boolean canMoveTetromino(int dx, int dy, int steps) {
+		ActiveTetromino t = activeTetromino;
+		if (t == null) {
+			return false;
+		}
+		Shape shape = t.getShape();
+		if (steps != 0) {
+			// NOTE: rotating a builtin tetromino returns a shared instance
+			Tetromino rotated = t.getUnderlyingTetromino().rotate(steps);
+			shape = Shape.of(rotated, rotated.getOrientation());
+		}
+		return canPlace(shape, t.getX() + dx, t.getY() + dy, true);
+	}
 
-	private boolean isLineFull(int y) {
-		for(int x = 0; x < width; ++x) {
-			if(getPlacedTetrominoAt(x, y) == null)
+	/**
+	 * Check whether a given shape can be placed at a given position. That is,
+	 * whether all of its cells are on the board and currently free.
+	 *
+	 * @param shape The shape being checked.
+	 * @param cx    The column on which the shape is centered.
+	 * @param cy    The row on which the shape is centered.
+	 * @param above True if cells beyond the top of the board are allowed.
+	 * @return True if the shape can be placed, false otherwise.
+	 */
+	private boolean canPlace(Shape shape, int cx, int cy, boolean above) {
+		int base = cx + shape.getMinX();
+		if (base < 0 || cx + shape.getMaxX() >= width || cy + shape.getMinY() < 0
+				|| (!above && cy + shape.getMaxY() >= height)) {
+			return false;
+		}
+		int maxY = Math.min(shape.getMaxY(), height - 1 - cy);
+		for (int dy = shape.getMinY(); dy <= maxY; ++dy) {
+			// NOTE: the mask is widened without sign extension, since a shape can be
+			// 32 columns wide
+			if (collides(base, cy + dy, shape.getRowMask(dy) & 0xFFFFFFFFL)) {
 				return false;
+			}
 		}
 		return true;
 	}
+
+	/**
+	 * Check whether a given row mask overlaps any placed cells on the board. Bit
+	 * <code>i</code> of the mask corresponds to column <code>x + i</code> of the
+	 * row, and all set bits must lie within the board.
+	 *
+	 * @param x    The column corresponding to the lowest bit of the mask.
+	 * @param y    The row being checked.
+	 * @param mask The cells being checked.
+	 * @return True if at least one cell in the mask is already occupied.
+	 */
+	private boolean collides(int x, int y, long mask) {
+		return row(y).collides(x, mask);
+	}
+
+	/**
+	 * Check whether a given cell holds a placed tetromino. The position must be
+	 * within the board.
+	 *
+	 * @param x The x-coordinate of the cell to check
+	 * @param y The y-coordinate of the cell to check
+	 * @return True if the cell is occupied.
+	 */
+	private boolean isOccupied(int x, int y) {
+		return row(y).isOccupied(x);
+	}
+
+	/**
+	 * Get a given row of this board, which must be within the board.
+	 *
+	 * @param y The row of interest.
+	 * @return The row, which is the shared empty row if it lies beyond the row
+	 *         table.
+	 */
+	private Row row(int y) {
+		return y < rows.length ? rows[y] : empty;
+	}
+
+	/**
+	 * Ensure the row table covers a given row, growing it geometrically if not.
+	 * This must be called after <code>own()</code>.
+	 *
+	 * @param y The row which must be covered.
+	 */
+	private void reserve(int y) {
+		if (y >= rows.length) {
+			int n = rows.length;
+			rows = Arrays.copyOf(rows, Math.min(height, Math.max(y + 1, n * 2)));
+			Arrays.fill(rows, n, rows.length, empty);
+		}
+	}
+
+	/**
+	 * Ensure this board has its own copy of the row table and column heights,
+	 * rather than sharing them with another board. This must be called before
+	 * either is updated.
+	 */
+	private void own() {
+		if (shared) {
+			rows = rows.clone();
+			heights = heights.clone();
+			shared = false;
+		}
+	}
+
+	/**
+	 * Replace a given row, recording the change if required. The caller is
+	 * responsible for updating the column heights and stack height afterwards.
+	 *
+	 * @param y   The row to update.
+	 * @param row The new contents of the row.
+	 */
+	private void writeRow(int y, Row row) {
+		own();
+		reserve(y);
+		if (journal != null) {
+			journal.pushRef(rows[y]);
+			journal.push(y);
+			journal.push(UNDO_ROW);
+		}
+		hash ^= hash(y, rows[y]) ^ hash(y, row);
+		rows[y] = row;
+	}
+
+	/**
+	 * Update the height of a given column, recording the change if required.
+	 *
+	 * @param x The column to update.
+	 * @param h The new height of the column.
+	 */
+	private void setColumnHeight(int x, int h) {
+		if (heights[x] != h) {
+			own();
+			if (journal != null) {
+				journal.push(x);
+				journal.push(heights[x]);
+				journal.push(UNDO_HEIGHT);
+			}
+			heights[x] = h;
+		}
+	}
+
+	/**
+	 * Update the height of the stack, recording the change if required.
+	 *
+	 * @param h The new height of the stack.
+	 */
+	private void setStackHeight(int h) {
+		if (top != h) {
+			if (journal != null) {
+				journal.push(top);
+				journal.push(UNDO_TOP);
+			}
+			top = h;
+		}
+	}
+
 	public boolean CheckLanded(ActiveTetromino activeTetromino){
 		//if it is null return false
 		if(activeTetromino == null){
 			return false;
 		}
-		//if torching floor return true
-		for(int x = 0; x < getWidth(); ++x) {
-			if (activeTetromino.isWithin(x, 0))
-				return true;
-		}
-		//check if there is color below the bound
-		Rectangle bound = activeTetromino.getBoundingBox();
-		for (int i = bound.getMinX(); i <= bound.getMaxX() ; i++) {
-			for (int j = bound.getMinY(); j <= bound.getMaxY() ; j++) {
-
-				if(!activeTetromino.isWithin(i, j))
-					continue;
-                //check if every tetromino don't have color below it
-				Tetromino t = getTetrominoAt(i, j-1);
-				if(t != null && t != activeTetromino)
-					return true;
+		// Compare the bottom profile of the tetromino against the column heights
+		Shape shape = activeTetromino.getShape();
+		for (int dx = shape.getMinX(); dx <= shape.getMaxX(); dx++) {
+			int bottom = shape.getBottom(dx);
+			if (bottom == Integer.MAX_VALUE) {
+				continue;
 			}
+			int x = activeTetromino.getX() + dx;
+			int y = activeTetromino.getY() + bottom;
+			//if touching floor or resting on top of the column return true
+			if(y == 0 || y == heights[x])
+				return true;
+			//if tucked under an overhang, check if there is color below it
+			if(y > 0 && y < heights[x] && isOccupied(x, y - 1))
+				return true;
 		}
 		return  false;
 	}
 
 
+	/**
+	 * Determine how many rows a given tetromino can fall before it lands. That is,
+	 * the number of times it can be moved down before it either touches the floor
+	 * or rests on a placed tetromino. This is computed in a single pass over the
+	 * bottom profile of the tetromino, using the column heights.
+	 *
+	 * @param activeTetromino The tetromino being dropped.
+	 * @return The number of rows the tetromino can fall.
+	 */
+	public int getDropDistance(ActiveTetromino activeTetromino) {
+		Shape shape = activeTetromino.getShape();
+		int distance = Integer.MAX_VALUE;
+		for (int dx = shape.getMinX(); dx <= shape.getMaxX(); dx++) {
+			int bottom = shape.getBottom(dx);
+			if (bottom == Integer.MAX_VALUE) {
+				continue;
+			}
+			int x = activeTetromino.getX() + dx;
+			int y = activeTetromino.getY() + bottom;
+			// Determine the lowest row this column allows the cell to reach
+			int rest = heights[x];
+			if (y < rest) {
+				// Tucked under an overhang, so find the first placed cell below
+				rest = y;
+				while (rest > 0 && !isOccupied(x, rest - 1)) {
+					rest = rest - 1;
+				}
+			}
+			distance = Math.min(distance, y - rest);
+		}
+		return distance;
+	}
+
 	/**
 	 * Place a given tetromino on the board by filling out each square it contains
-	 * on the board.
+	 * on the board. Only the colour of the tetromino is recorded, so reading a
+	 * placed cell back returns a shared placeholder of the same colour. Any
+	 * squares beyond the top of the board are discarded.
 	 *
 	 * @param t tetromino to place; cannot be null
 	 */
 	public void placeTetromino(Tetromino t) {
-		Rectangle r = t.getBoundingBox();
-		for (int x = r.getMinX(); x <= r.getMaxX(); ++x) {
-			for (int y = r.getMinY(); y <= r.getMaxY(); ++y) {
-				if (t.isWithin(x, y)) {
-					cells[(y * width) + x] = t;
-				}
+		if (t instanceof ActiveTetromino) {
+			ActiveTetromino a = (ActiveTetromino) t;
+			place(t, a.getShape(), a.getX(), a.getY());
+		} else {
+			// NOTE: a tetromino which is not active is positioned at the origin.
+			place(t, Shape.of(t, Orientation.NORTH), 0, 0);
+		}
+	}
+
+	/**
+	 * Fill out each cell of a given shape on the board. Each affected row is
+	 * updated once, using the shape's row masks.
+	 *
+	 * @param t     The tetromino being placed.
+	 * @param shape The cells of the tetromino.
+	 * @param cx    The column on which the shape is centered.
+	 * @param cy    The row on which the shape is centered.
+	 */
+	private void place(Tetromino t, Shape shape, int cx, int cy) {
+		int base = cx + shape.getMinX();
+		int maxY = Math.min(shape.getMaxY(), height - 1 - cy);
+		if (maxY < shape.getMinY()) {
+			return;
+		}
+		for (int dy = shape.getMinY(); dy <= maxY; ++dy) {
+			int y = cy + dy;
+			writeRow(y, row(y).fill(base, shape.getRowMask(dy) & 0xFFFFFFFFL, t));
+		}
+		for (int i = 0; i < shape.size(); ++i) {
+			int x = cx + shape.getX(i);
+			int y = cy + shape.getY(i);
+			if (y < height) {
+				setColumnHeight(x, Math.max(heights[x], y + 1));
 			}
 		}
+		setStackHeight(Math.max(top, cy + maxY + 1));
 	}
 
 	@Override
 	public String toString() {
 		StringBuffer res = new StringBuffer();
+		String blank = null;
 		for (int y = height - 1; y >= 0; y -= 1) {
+			// Empty rows not crossed by the active tetromino are all the same
+			if (row(y).isEmpty() && (activeTetromino == null || y < activeTetromino.getMinY()
+					|| y > activeTetromino.getMaxY())) {
+				if (blank == null) {
+					StringBuffer line = new StringBuffer("|");
+					for (int x = 0; x < width; x += 1) {
+						line.append("_|");
+					}
+					blank = line.append("\n").toString();
+				}
+				res.append(blank);
+				continue;
+			}
 			res.append("|");
 			for (int x = 0; x < width; x += 1) {
 				Tetromino tetromino = getTetrominoAt(x, y);
@@ -254,44 +797,426 @@ public class Board {
 		}
 		return res.toString();
 	}
-	public void LineProcess() {
-		// let i-> y, j-> x
-		int count = -1;
-		for (int i = height - 1; i >=0 ; i--) {
-			if(containY(i)){
-				count =Math.max(i,count);
-			}
-			if(lineFull(i)){
-				for (int j = 0; j < width; j++) {
-					// move the y+1 one to y
-					Tetromino tetromino = getPlacedTetrominoAt(j, i + 1);
-					setPlacedTetrominoAt(j, i, tetromino);
-					//remove the top layer
-					if(count != -1){
-						setPlacedTetrominoAt(j, count, null);
-					}
+
+	/**
+	 * Remove all full rows from the board, moving the rows above them down. Only
+	 * placed tetrominos are considered, so the active tetromino should be placed
+	 * (or cleared) beforehand.
+	 *
+	 * @return The rows which were removed, in ascending order and numbered as
+	 *         they were before removal. This is empty if no rows were full.
+	 */
+	public int[] LineProcess() {
+		return clearLines(0, top - 1);
+	}
+
+	/**
+	 * Remove any full rows within a given range, moving the rows above them down.
+	 * Since only a row which has just had cells placed in it can become full, this
+	 * allows a landed tetromino to check only the (at most four) rows it covers.
+	 * Full rows are identified in a single pass, after which the surviving rows
+	 * are compacted in bulk. Hence, removing several rows at once costs no more
+	 * than removing one. The time taken is recorded in the metrics of all
+	 * boards, if there are any (see <code>GameMetrics.setBoardMetrics()</code>).
+	 *
+	 * @param minY The lowest row to check.
+	 * @param maxY The highest row to check.
+	 * @return The rows which were removed, in ascending order and numbered as
+	 *         they were before removal. This is empty if no rows were full.
+	 */
+	public int[] clearLines(int minY, int maxY) {
+		GameMetrics metrics = GameMetrics.getBoardMetrics();
+		if (metrics == null) {
+			return removeLines(minY, maxY);
+		}
+		long start = System.nanoTime();
+		int[] removed = removeLines(minY, maxY);
+		metrics.recordLineTime(System.nanoTime() - start);
+		return removed;
+	}
+
+	/**
+	 * Remove any full rows within a given range (see <code>clearLines()</code>).
+	 *
+	 * @param minY The lowest row to check.
+	 * @param maxY The highest row to check.
+	 * @return The rows which were removed.
+	 */
+	private int[] removeLines(int minY, int maxY) {
+		// Rows at or above the top of the stack cannot be full
+		minY = Math.max(minY, 0);
+		maxY = Math.min(maxY, top - 1);
+		// Identify the full rows
+		int count = 0;
+		int[] removed = NO_ROWS;
+		for (int y = minY; y <= maxY; ++y) {
+			if (rows[y].isFull()) {
+				if (count == 0) {
+					removed = new int[(maxY - y) + 1];
 				}
-				//if there have two layers to move
-				count = count - 1;
+				removed[count++] = y;
+			}
+		}
+		if (count == 0) {
+			return NO_ROWS;
+		} else if (journal != null) {
+			// Record the removed rows so they can be reinstated
+			Row[] contents = new Row[count];
+			for (int i = 0; i < count; ++i) {
+				contents[i] = rows[removed[i]];
+				journal.push(removed[i]);
 			}
+			journal.pushRef(contents);
+			journal.pushRef(Arrays.copyOf(heights, width));
+			journal.push(count);
+			journal.push(top);
+			journal.push(UNDO_LINES);
 		}
+		// Compact each run of surviving rows between removed rows downwards. Since
+		// rows are immutable, only references to them need to be moved.
+		own();
+		hash ^= hash(removed[0], top);
+		int to = removed[0];
+		for (int i = 0; i < count; ++i) {
+			int from = removed[i] + 1;
+			int n = (i + 1 < count ? removed[i + 1] : top) - from;
+			System.arraycopy(rows, from, rows, to, n);
+			to = to + n;
+		}
+		// Clear the rows vacated at the top
+		Arrays.fill(rows, to, top, empty);
+		hash ^= hash(removed[0], to);
+		// Update the column heights
+		for (int x = 0; x < width; ++x) {
+			int h = Math.min(heights[x], to);
+			while (h > 0 && !isOccupied(x, h - 1)) {
+				h = h - 1;
+			}
+			heights[x] = h;
+		}
+		top = max(heights);
+		return removed.length == count ? removed : Arrays.copyOf(removed, count);
 	}
-	private boolean lineFull(int y){
-		for (int i = 0; i < width; i++) {
-			Tetromino tetromino = getTetrominoAt(i, y);
-			if(tetromino == null){
-				return false;
+
+	/**
+	 * Insert rows of garbage at the bottom of the board, pushing the existing
+	 * rows up. Each garbage row is full except for a single hole. Since rows are
+	 * shared and immutable, this only moves row references, and every garbage row
+	 * is represented by the same object. The active tetromino (if any) is not
+	 * moved.
+	 *
+	 * @param count The number of rows to insert.
+	 * @param hole  The column left empty in each garbage row.
+	 * @param t     The tetromino used to fill the garbage rows.
+	 * @return True if the rows were inserted, or false if this would push placed
+	 *         tetrominos off the top of the board (in which case the board is
+	 *         unchanged).
+	 */
+	public boolean insertRows(int count, int hole, Tetromino t) {
+		if (count < 0) {
+			throw new IllegalArgumentException("Invalid count (" + count + ")");
+		}
+		if (hole < 0 || hole >= width) {
+			throw new IllegalArgumentException("Invalid column (" + hole + ")");
+		}
+		if (top + count > height) {
+			return false;
+		} else if (count == 0) {
+			return true;
+		}
+		// Construct the garbage row
+		Row garbage = empty;
+		for (int x = 0; x < width; x += 64) {
+			long bits = width - x >= 64 ? -1L : (1L << (width - x)) - 1;
+			if (hole >= x && hole < x + 64) {
+				bits &= ~(1L << (hole - x));
 			}
+			garbage = garbage.fill(x, bits, t);
+		}
+		own();
+		reserve(top + count - 1);
+		if (journal != null) {
+			journal.pushRef(Arrays.copyOf(heights, width));
+			journal.push(count);
+			journal.push(UNDO_INSERT);
 		}
+		hash ^= hash(0, top);
+		System.arraycopy(rows, 0, rows, count, top);
+		Arrays.fill(rows, 0, count, garbage);
+		for (int x = 0; x < width; ++x) {
+			if (x != hole || heights[x] != 0) {
+				heights[x] += count;
+			}
+		}
+		top = top + count;
+		hash ^= hash(0, top);
 		return true;
 	}
-	private boolean containY(int y){
-		for (int i = 0; i < width; i++) {
-			Tetromino tetromino = getTetrominoAt(i, y);
-			if(tetromino != null){
-				return true;
+
+	/**
+	 * Enable or disable recording of changes to this board. When enabled, every
+	 * change made through this board's methods is recorded in a compact journal,
+	 * so that the board can be rolled back in place using <code>undoTo()</code>.
+	 * Disabling recording discards any recorded changes.
+	 *
+	 * @param undoable True if changes should be recorded.
+	 */
+	public void setUndoable(boolean undoable) {
+		if (!undoable) {
+			journal = null;
+		} else if (journal == null) {
+			journal = new Journal();
+		}
+	}
+
+	/**
+	 * Check whether changes to this board are being recorded.
+	 *
+	 * @return True if changes can be undone.
+	 */
+	public boolean isUndoable() {
+		return journal != null;
+	}
+
+	/**
+	 * Mark the current state of this board, such that it can be returned to later
+	 * using <code>undoTo()</code>.
+	 *
+	 * @return The mark identifying the current state.
+	 */
+	public int mark() {
+		if (journal == null) {
+			throw new IllegalStateException("board is not undoable");
+		}
+		return journal.size();
+	}
+
+	/**
+	 * Undo all changes made to this board since a given mark was taken. This
+	 * restores the board in place, without allocating (unless the board is
+	 * sharing its rows with a copy).
+	 *
+	 * @param mark A mark previously returned by <code>mark()</code>.
+	 */
+	public void undoTo(int mark) {
+		if (journal == null || mark < 0 || mark > journal.size()) {
+			throw new IllegalArgumentException("Invalid mark (" + mark + ")");
+		}
+		if (journal.size() > mark) {
+			own();
+		}
+		while (journal.size() > mark) {
+			switch (journal.pop()) {
+			case UNDO_ROW: {
+				int y = journal.pop();
+				Row row = (Row) journal.popRef();
+				hash ^= hash(y, rows[y]) ^ hash(y, row);
+				rows[y] = row;
+				break;
+			}
+			case UNDO_HEIGHT: {
+				int h = journal.pop();
+				heights[journal.pop()] = h;
+				break;
+			}
+			case UNDO_TOP:
+				top = journal.pop();
+				break;
+			case UNDO_ACTIVE:
+				activeTetromino = (ActiveTetromino) journal.popRef();
+				activeHash = hash(activeTetromino);
+				break;
+			case UNDO_INSERT: {
+				int count = journal.pop();
+				int[] oldHeights = (int[]) journal.popRef();
+				hash ^= hash(0, top);
+				System.arraycopy(rows, count, rows, 0, top - count);
+				Arrays.fill(rows, top - count, top, empty);
+				System.arraycopy(oldHeights, 0, heights, 0, width);
+				top = top - count;
+				hash ^= hash(0, top);
+				break;
+			}
+			case UNDO_LINES:
+			default:
+				undoLines();
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reinstate a set of rows recorded in the journal when they were removed. This
+	 * reverses the compaction performed by <code>clearLines()</code>, moving each
+	 * run of surviving rows back up before restoring the removed rows themselves.
+	 */
+	private void undoLines() {
+		int oldTop = journal.pop();
+		int count = journal.pop();
+		int[] oldHeights = (int[]) journal.popRef();
+		Row[] contents = (Row[]) journal.popRef();
+		// NOTE: the removed rows remain on the journal in ascending order, such
+		// that removed row i is at depth (count - 1 - i).
+		int first = journal.peek(count - 1);
+		hash ^= hash(first, top);
+		int next = oldTop;
+		for (int i = count - 1; i >= 0; --i) {
+			int y = journal.peek(count - 1 - i);
+			// Move back the run of surviving rows above this row, which were shifted
+			// down by the number of rows removed below them.
+			int n = next - (y + 1);
+			System.arraycopy(rows, y - i, rows, y + 1, n);
+			// Reinstate the removed row
+			rows[y] = contents[i];
+			next = y;
+		}
+		for (int i = 0; i < count; ++i) {
+			journal.pop();
+		}
+		System.arraycopy(oldHeights, 0, heights, 0, width);
+		top = oldTop;
+		hash ^= hash(first, top);
+	}
+
+	/**
+	 * Get a 64-bit hash of this board's position, covering both the placed
+	 * tetrominos and the active tetromino. This is maintained incrementally, so
+	 * takes constant time. Boards which are equal always have the same hash.
+	 *
+	 * @return The position hash.
+	 */
+	public long getHash() {
+		return hash ^ activeHash;
+	}
+
+	@Override
+	public int hashCode() {
+		long h = getHash();
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Two boards are equal if they have the same dimensions, the same colours in
+	 * every placed cell and the same active tetromino. Boards whose hashes differ
+	 * are rejected immediately, and rows shared between the boards are not
+	 * compared.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		} else if (!(o instanceof Board)) {
+			return false;
+		}
+		Board b = (Board) o;
+		if (width != b.width || height != b.height || top != b.top || getHash() != b.getHash()
+				|| !sameActive(activeTetromino, b.activeTetromino)) {
+			return false;
+		}
+		for (int y = 0; y < top; ++y) {
+			if (!rows[y].sameContents(b.rows[y])) {
+				return false;
 			}
 		}
-		return false;
+		return true;
+	}
+
+	/**
+	 * Combine the hashes of the rows in a given range.
+	 *
+	 * @param from The first row (inclusive).
+	 * @param to   The last row (exclusive).
+	 * @return The combined hash.
+	 */
+	private long hash(int from, int to) {
+		long h = 0;
+		for (int y = from; y < to; ++y) {
+			h ^= hash(y, rows[y]);
+		}
+		return h;
+	}
+
+	/**
+	 * Determine the hash of a given row at a given position on the board. Empty
+	 * rows have a hash of zero, such that the hash of a board depends only upon
+	 * its non-empty rows.
+	 *
+	 * @param y   The position of the row.
+	 * @param row The row itself.
+	 * @return The hash.
+	 */
+	private static long hash(int y, Row row) {
+		return row.isEmpty() ? 0 : hash(y, row.getKey());
+	}
+
+	/**
+	 * Determine the hash of a non-empty row with a given key at a given position
+	 * on the board.
+	 *
+	 * @param y   The position of the row.
+	 * @param key The key of the row's contents (see <code>Row.getKey()</code>).
+	 * @return The hash.
+	 */
+	static long hash(int y, long key) {
+		return Row.mix(key + ((y + 1) * 0x9E3779B97F4A7C15L));
+	}
+
+	/**
+	 * Determine the hash of an active tetromino, which depends upon its kind,
+	 * orientation, colour and position.
+	 *
+	 * @param t The active tetromino, which may be <code>null</code>.
+	 * @return The hash, which is zero for <code>null</code>.
+	 */
+	static long hash(ActiveTetromino t) {
+		if (t == null) {
+			return 0;
+		}
+		long kind = ((long) t.getName().hashCode() << 16) | (t.getOrientation().ordinal() << 8)
+				| t.getColor().ordinal();
+		return Row.mix(Row.mix(kind) + (((long) t.getX() << 32) | (t.getY() & 0xFFFFFFFFL)));
+	}
+
+	/**
+	 * Check whether two active tetrominos are indistinguishable. That is, whether
+	 * they are of the same kind, orientation and colour, and at the same position.
+	 *
+	 * @param t The first active tetromino, which may be <code>null</code>.
+	 * @param u The second active tetromino, which may be <code>null</code>.
+	 * @return True if they are the same.
+	 */
+	private static boolean sameActive(ActiveTetromino t, ActiveTetromino u) {
+		if (t == u) {
+			return true;
+		} else if (t == null || u == null) {
+			return false;
+		}
+		return t.getX() == u.getX() && t.getY() == u.getY() && t.getColor() == u.getColor()
+				&& t.getOrientation() == u.getOrientation() && t.getName().equals(u.getName());
+	}
+
+	/**
+	 * Determine the largest value in an array of non-negative values.
+	 *
+	 * @param values The array being examined.
+	 * @return The largest value, or zero if the array is empty.
+	 */
+	private static int max(int[] values) {
+		int m = 0;
+		for (int i = 0; i < values.length; ++i) {
+			m = Math.max(m, values[i]);
+		}
+		return m;
+	}
+
+	/**
+	 * Record the creation of a board, if boards are being recorded (see
+	 * <code>GameMetrics.setBoardMetrics()</code>).
+	 */
+	private static void recordAllocated() {
+		GameMetrics metrics = GameMetrics.getBoardMetrics();
+		if (metrics != null) {
+			metrics.recordBoardAllocated();
+		}
 	}
 }
@@ -0,0 +1,361 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.logic;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import swen221.tetris.metrics.GameMetrics;
+import swen221.tetris.tetromino.Tetromino;
+
+/**
+ * A pool of off-heap memory from which boards of a fixed size are allocated.
+ * Each board occupies a fixed-size slot in a direct buffer, such that the
+ * contents of boards are invisible to the garbage collector and the heap cost of
+ * a board is just its (small) <code>ArenaBoard</code> view. Boards are allocated
+ * and released explicitly, and released slots are reused. A board which becomes
+ * unreachable without being released has its slot reclaimed by a later
+ * allocation, so boards handed out to other code need not be released.
+ * <p>
+ * Memory is divided into chunks of about a megabyte (or one slot, for very
+ * large boards), which are allocated as they are first needed. Hence, an arena
+ * grows as boards are allocated, up to an optional capacity. The arenas
+ * returned by <code>shared()</code> have no capacity, and are shared by all
+ * boards of the same size. Allocation and release are thread-safe, but each
+ * board should be used by only one thread at a time.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public final class BoardArena implements BoardEngine.Factory {
+	/**
+	 * The largest size of any slot in bytes.
+	 */
+	private static final int MAX_SLOT_SIZE = 1 << 30;
+
+	/**
+	 * The size of each chunk in bytes, unless a slot is larger than this.
+	 */
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	/**
+	 * The arenas returned by <code>shared()</code>, indexed by their width and
+	 * height.
+	 */
+	private static final ConcurrentHashMap<Long, BoardArena> SHARED = new ConcurrentHashMap<>();
+
+	/**
+	 * The width of every board in this arena.
+	 */
+	private final int width;
+
+	/**
+	 * The height of every board in this arena.
+	 */
+	private final int height;
+
+	/**
+	 * The maximum number of boards which can be allocated at once.
+	 */
+	private final int capacity;
+
+	/**
+	 * The size in bytes of each slot, which is a multiple of eight.
+	 */
+	private final int slotSize;
+
+	/**
+	 * The number of slots held in each chunk.
+	 */
+	private final int slotsPerChunk;
+
+	/**
+	 * The chunks of memory, which are <code>null</code> until first needed.
+	 */
+	private ByteBuffer[] chunks = new ByteBuffer[1];
+
+	/**
+	 * Tracks the board occupying each slot, or is <code>null</code> for a slot
+	 * which is not in use.
+	 */
+	private Handle[] handles = new Handle[16];
+
+	/**
+	 * Receives the handles of boards which have become unreachable.
+	 */
+	private final ReferenceQueue<ArenaBoard> unreachable = new ReferenceQueue<>();
+
+	/**
+	 * The slots which have been released and can be reused.
+	 */
+	private int[] free = new int[16];
+
+	/**
+	 * The number of entries in <code>free</code>.
+	 */
+	private int freeCount;
+
+	/**
+	 * The number of slots which have ever been handed out. Every slot at or above
+	 * this is unused.
+	 */
+	private int used;
+
+	/**
+	 * Construct an arena for boards of a given size, which grows without limit.
+	 *
+	 * @param width  The width (in columns) of every board.
+	 * @param height The height (in rows) of every board.
+	 */
+	public BoardArena(int width, int height) {
+		this(width, height, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Construct an arena for boards of a given size.
+	 *
+	 * @param width    The width (in columns) of every board.
+	 * @param height   The height (in rows) of every board.
+	 * @param capacity The maximum number of boards which can be allocated at once.
+	 */
+	public BoardArena(int width, int height, int capacity) {
+		if (width <= 0 || height <= 0 || capacity <= 0) {
+			throw new IllegalArgumentException("Invalid arena (" + width + "x" + height + "x" + capacity + ")");
+		}
+		long size = ArenaBoard.slotSize(width, height);
+		if (size > MAX_SLOT_SIZE) {
+			throw new IllegalArgumentException("Board too large (" + width + "x" + height + ")");
+		}
+		this.width = width;
+		this.height = height;
+		this.capacity = capacity;
+		this.slotSize = (int) size;
+		this.slotsPerChunk = Math.max(1, CHUNK_SIZE / slotSize);
+	}
+
+	/**
+	 * Get the arena shared by all boards of a given size, creating it if
+	 * necessary. This has no capacity.
+	 *
+	 * @param width  The width (in columns) of the boards.
+	 * @param height The height (in rows) of the boards.
+	 * @return The arena.
+	 */
+	public static BoardArena shared(int width, int height) {
+		Long key = ((long) width << 32) | (height & 0xFFFFFFFFL);
+		BoardArena arena = SHARED.get(key);
+		if (arena == null) {
+			arena = SHARED.computeIfAbsent(key, k -> new BoardArena(width, height));
+		}
+		return arena;
+	}
+
+	/**
+	 * Get the width of every board in this arena.
+	 *
+	 * @return The width (in columns).
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get the height of every board in this arena.
+	 *
+	 * @return The height (in rows).
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Get the maximum number of boards which can be allocated at once.
+	 *
+	 * @return The capacity, which is <code>Integer.MAX_VALUE</code> if this arena
+	 *         grows without limit.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Get the number of boards currently allocated. This includes any boards
+	 * which are unreachable, but whose slots have not yet been reclaimed.
+	 *
+	 * @return The number of live boards.
+	 */
+	public synchronized int size() {
+		return used - freeCount;
+	}
+
+	/**
+	 * Allocate an empty board from this arena, which must have the size of the
+	 * boards in this arena. This allows an arena to be used as the factory for a
+	 * game.
+	 *
+	 * @param width  The width (in columns) of the board.
+	 * @param height The height (in rows) of the board.
+	 * @return The board.
+	 */
+	@Override
+	public ArenaBoard create(int width, int height) {
+		if (width != this.width || height != this.height) {
+			throw new IllegalArgumentException("Invalid board size (" + width + "x" + height + ")");
+		}
+		return allocate();
+	}
+
+	/**
+	 * Allocate an empty board from this arena. This is recorded in the metrics
+	 * of all boards, if there are any (see <code>GameMetrics</code>).
+	 *
+	 * @return The board.
+	 */
+	public ArenaBoard allocate() {
+		int slot;
+		ByteBuffer chunk;
+		synchronized (this) {
+			reclaim();
+			if (freeCount > 0) {
+				slot = free[--freeCount];
+			} else if (used < capacity) {
+				slot = used++;
+			} else {
+				throw new IllegalStateException("arena is full");
+			}
+			chunk = chunk(slot);
+		}
+		int base = (slot % slotsPerChunk) * slotSize;
+		// Released slots may hold stale contents, so clear the slot
+		for (int i = 0; i < slotSize; i += 8) {
+			chunk.putLong(base + i, 0);
+		}
+		ArenaBoard board = new ArenaBoard(this, slot, chunk, base);
+		synchronized (this) {
+			if (slot >= handles.length) {
+				handles = Arrays.copyOf(handles, Math.max(slot + 1, handles.length * 2));
+			}
+			handles[slot] = new Handle(board, slot, unreachable);
+		}
+		GameMetrics metrics = GameMetrics.getBoardMetrics();
+		if (metrics != null) {
+			metrics.recordBoardAllocated();
+		}
+		return board;
+	}
+
+	/**
+	 * Allocate a board from this arena which holds a copy of a given board.
+	 *
+	 * @param board The board to copy, which must have the same dimensions as this
+	 *              arena.
+	 * @return The copy.
+	 */
+	public ArenaBoard allocate(Board board) {
+		if (board.getWidth() != width || board.getHeight() != height) {
+			throw new IllegalArgumentException("Invalid board size");
+		}
+		ArenaBoard copy = allocate();
+		for (int y = 0; y < board.getStackHeight(); ++y) {
+			for (int x = 0; x < width; ++x) {
+				Tetromino t = board.getPlacedTetrominoAt(x, y);
+				if (t != null) {
+					copy.setPlacedTetrominoAt(x, y, t);
+				}
+			}
+		}
+		copy.setActiveTetromino(board.getActiveTetromino());
+		return copy;
+	}
+
+	/**
+	 * Return a slot to this arena, such that it can be reused.
+	 *
+	 * @param slot The slot being released.
+	 */
+	synchronized void release(int slot) {
+		// NOTE: the handle is cleared so the slot is not reclaimed again
+		handles[slot].clear();
+		handles[slot] = null;
+		if (freeCount == free.length) {
+			free = Arrays.copyOf(free, free.length * 2);
+		}
+		free[freeCount++] = slot;
+	}
+
+	/**
+	 * Get the size in bytes of each slot.
+	 *
+	 * @return The slot size.
+	 */
+	int getSlotSize() {
+		return slotSize;
+	}
+
+	/**
+	 * Return the slots of any boards which have become unreachable without being
+	 * released. This must be called whilst holding the lock on this arena.
+	 */
+	private void reclaim() {
+		Reference<? extends ArenaBoard> r;
+		while ((r = unreachable.poll()) != null) {
+			Handle handle = (Handle) r;
+			// NOTE: a handle may be queued just as its board is released
+			if (handles[handle.slot] == handle) {
+				release(handle.slot);
+			}
+		}
+	}
+
+	/**
+	 * Get the chunk holding a given slot, allocating it if necessary. This must be
+	 * called whilst holding the lock on this arena.
+	 *
+	 * @param slot The slot.
+	 * @return The chunk.
+	 */
+	private ByteBuffer chunk(int slot) {
+		int i = slot / slotsPerChunk;
+		if (i >= chunks.length) {
+			chunks = Arrays.copyOf(chunks, Math.max(i + 1, chunks.length * 2));
+		}
+		ByteBuffer chunk = chunks[i];
+		if (chunk == null) {
+			int n = (int) Math.min(slotsPerChunk, (long) capacity - ((long) i * slotsPerChunk));
+			chunk = ByteBuffer.allocateDirect(n * slotSize).order(ByteOrder.nativeOrder());
+			chunks[i] = chunk;
+		}
+		return chunk;
+	}
+
+	/**
+	 * Tracks a board allocated from this arena, such that its slot can be
+	 * reclaimed once the board becomes unreachable.
+	 */
+	private static final class Handle extends PhantomReference<ArenaBoard> {
+		/**
+		 * The slot occupied by the board.
+		 */
+		private final int slot;
+
+		/**
+		 * Construct a handle for a given board.
+		 *
+		 * @param board The board.
+		 * @param slot  The slot it occupies.
+		 * @param queue The queue to which the handle is added once the board is
+		 *              unreachable.
+		 */
+		public Handle(ArenaBoard board, int slot, ReferenceQueue<ArenaBoard> queue) {
+			super(board, queue);
+			this.slot = slot;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.logic;
+
+import swen221.tetris.tetromino.ActiveTetromino;
+import swen221.tetris.tetromino.Tetromino;
+
+/**
+ * Provides the operations needed by a game and its moves to manipulate a board,
+ * in addition to those for inspecting it (see <code>BoardView</code>). This
+ * allows different representations of a board to be used interchangeably.
+ * The reference implementation is <code>Board</code>, whilst
+ * <code>ArenaBoard</code> holds its contents off-heap. The implementation used
+ * by a game is chosen when the game is constructed, and defaults to that named
+ * by the <code>tetris.engine</code> system property (see
+ * <code>defaultFactory()</code>).
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public interface BoardEngine extends BoardView {
+	/**
+	 * Constructs empty boards for a particular implementation.
+	 */
+	public interface Factory {
+		/**
+		 * Create an empty board of a given size.
+		 *
+		 * @param width  The width (in columns) of the board.
+		 * @param height The height (in rows) of the board.
+		 * @return The new board.
+		 */
+		public BoardEngine create(int width, int height);
+	}
+
+	/**
+	 * The factory for the reference implementation.
+	 */
+	public static final Factory REFERENCE = Board::new;
+
+	/**
+	 * A factory for off-heap boards. Boards of the same size share one arena
+	 * (see <code>BoardArena.shared()</code>), which grows as needed. To use a
+	 * different arena, use the arena itself as the factory.
+	 */
+	public static final Factory ARENA = (width, height) -> BoardArena.shared(width, height).allocate();
+
+	/**
+	 * Get the factory named by the <code>tetris.engine</code> system property.
+	 * This is either <code>reference</code> (the default) or <code>arena</code>.
+	 *
+	 * @return The default factory.
+	 */
+	public static Factory defaultFactory() {
+		return forName(System.getProperty("tetris.engine", "reference"));
+	}
+
+	/**
+	 * Get the factory for a given implementation, which is either
+	 * <code>reference</code> or <code>arena</code>.
+	 *
+	 * @param name The name of the implementation.
+	 * @return The corresponding factory.
+	 */
+	public static Factory forName(String name) {
+		switch (name) {
+		case "reference":
+			return REFERENCE;
+		case "arena":
+			return ARENA;
+		default:
+			throw new IllegalArgumentException("Invalid engine (" + name + ")");
+		}
+	}
+
+	/**
+	 * Update the active tetromino for this board.
+	 *
+	 * @param tetromino The tetromino to be made active, which may be
+	 *                  <code>null</code>.
+	 */
+	public void setActiveTetromino(ActiveTetromino tetromino);
+
+	/**
+	 * Set the placed tetromino at a given position on the board.
+	 *
+	 * @param x The x-coordinate of the cell to update
+	 * @param y The y-coordinate of the cell to update
+	 * @param t The tetromino to place, which can be <code>null</code> if the cell
+	 *          is to be cleared.
+	 */
+	public void setPlacedTetrominoAt(int x, int y, Tetromino t);
+
+	/**
+	 * Place a given tetromino on the board by filling out each square it contains
+	 * on the board.
+	 *
+	 * @param t tetromino to place; cannot be null
+	 */
+	public void placeTetromino(Tetromino t);
+
+	/**
+	 * Remove all full rows from the board, moving the rows above them down.
+	 *
+	 * @return The rows which were removed, in ascending order and numbered as
+	 *         they were before removal.
+	 */
+	public int[] LineProcess();
+
+	/**
+	 * Remove any full rows within a given range, moving the rows above them down.
+	 *
+	 * @param minY The lowest row to check.
+	 * @param maxY The highest row to check.
+	 * @return The rows which were removed, in ascending order and numbered as
+	 *         they were before removal.
+	 */
+	public int[] clearLines(int minY, int maxY);
+
+	/**
+	 * Create an independent snapshot of this board, using the same
+	 * implementation.
+	 *
+	 * @return The copy.
+	 */
+	public BoardEngine copy();
+
+	/**
+	 * Indicate that this board is no longer needed. Implementations which manage
+	 * their own memory can reclaim it, after which the board must not be used.
+	 */
+	public default void release() {
+	}
+
+	/**
+	 * Enable or disable recording of changes to this board, such that they can
+	 * be undone using <code>undoTo()</code>.
+	 *
+	 * @param undoable True if changes should be recorded.
+	 */
+	public void setUndoable(boolean undoable);
+
+	/**
+	 * Check whether changes to this board are being recorded.
+	 *
+	 * @return True if changes can be undone.
+	 */
+	public boolean isUndoable();
+
+	/**
+	 * Mark the current state of this board, such that it can be returned to later
+	 * using <code>undoTo()</code>.
+	 *
+	 * @return The mark identifying the current state.
+	 */
+	public int mark();
+
+	/**
+	 * Undo all changes made to this board since a given mark was taken.
+	 *
+	 * @param mark A mark previously returned by <code>mark()</code>.
+	 */
+	public void undoTo(int mark);
+}
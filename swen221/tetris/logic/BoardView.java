@@ -0,0 +1,162 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.logic;
+
+import swen221.tetris.tetromino.ActiveTetromino;
+import swen221.tetris.tetromino.Tetromino;
+import swen221.tetris.tetromino.Tetromino.Color;
+
+/**
+ * Provides the operations needed to inspect a board without changing it. Every
+ * <code>BoardEngine</code> is a view, and a game hands out a view of its
+ * current board (see <code>Game.getActiveView()</code>) to code which only
+ * needs to read it, such as a renderer or a bot.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public interface BoardView {
+	/**
+	 * Receives the occupied cells of a board, as visited by
+	 * <code>forEachOccupied()</code>.
+	 */
+	public interface CellVisitor {
+		/**
+		 * Visit an occupied cell.
+		 *
+		 * @param x     The column of the cell.
+		 * @param y     The row of the cell.
+		 * @param color The colour of the tetromino occupying the cell.
+		 */
+		public void visit(int x, int y, Color color);
+	}
+
+	/**
+	 * Get the width in columns of this board.
+	 *
+	 * @return The width (in columns).
+	 */
+	public int getWidth();
+
+	/**
+	 * Get the height in rows of this board.
+	 *
+	 * @return The height (in rows).
+	 */
+	public int getHeight();
+
+	/**
+	 * Get the height of a given column. This is one more than the highest row in
+	 * that column which holds a placed tetromino, or zero if the column is empty.
+	 *
+	 * @param x The column of interest.
+	 * @return The height of the column.
+	 */
+	public int getColumnHeight(int x);
+
+	/**
+	 * Get the height of the stack of placed tetrominos. This is one more than the
+	 * highest row holding a placed tetromino, or zero if the board is empty.
+	 *
+	 * @return The height of the stack.
+	 */
+	public int getStackHeight();
+
+	/**
+	 * Get the active tetromino. This may be <code>null</code> if there is no
+	 * active tetromino.
+	 *
+	 * @return The active tetromino.
+	 */
+	public ActiveTetromino getActiveTetromino();
+
+	/**
+	 * Get any tetromino (including the active one) located at a given position on
+	 * the board.
+	 *
+	 * @param x The x-coordinate of the cell to check
+	 * @param y The y-coordinate of the cell to check
+	 * @return The tetromino, or <code>null</code> if the cell is empty.
+	 */
+	public Tetromino getTetrominoAt(int x, int y);
+
+	/**
+	 * Get the placed tetromino (if any) located at a given position on the board.
+	 *
+	 * @param x The x-coordinate of the cell to check
+	 * @param y The y-coordinate of the cell to check
+	 * @return The tetromino, or <code>null</code> if the cell is empty.
+	 */
+	public Tetromino getPlacedTetrominoAt(int x, int y);
+
+	/**
+	 * Copy the colour of every cell on the board (including those of the active
+	 * tetromino) into a given array. The cell at <code>(x,y)</code> is written to
+	 * element <code>(y * getWidth()) + x</code>, and holds zero when empty or one
+	 * more than the ordinal of its colour otherwise.
+	 *
+	 * @param out The array to copy into, which must hold at least
+	 *            <code>getWidth() * getHeight()</code> elements.
+	 * @return The array.
+	 */
+	public byte[] copyCells(byte[] out);
+
+	/**
+	 * Visit every occupied cell on the board. The placed cells are visited first,
+	 * from the bottom row up, followed by the cells of the active tetromino (if
+	 * any) which are on the board.
+	 *
+	 * @param visitor The visitor to apply to each occupied cell.
+	 */
+	public void forEachOccupied(CellVisitor visitor);
+
+	/**
+	 * Check whether a tetromino can be placed on the board. That is, whether the
+	 * cells it occupies are on the board and currently free.
+	 *
+	 * @param tetromino The tetromino being checked.
+	 * @return True if the tetromino can be placed, false otherwise.
+	 */
+	public boolean canPlaceTetromino(Tetromino tetromino);
+
+	/**
+	 * Probe whether the active tetromino could be translated and/or rotated by a
+	 * given amount, without modifying the board.
+	 *
+	 * @param dx    The amount to move in the x direction.
+	 * @param dy    The amount to move in the y direction.
+	 * @param steps Number of steps to rotate in clockwise direction, where
+	 *              negative values go in the anti-clockwise direction.
+	 * @return True if the moved tetromino fits, false otherwise (including when
+	 *         there is no active tetromino).
+	 */
+	public boolean canMoveTetromino(int dx, int dy, int steps);
+
+	/**
+	 * Check whether a given tetromino has landed. That is, whether it rests on
+	 * the floor or on a placed tetromino.
+	 *
+	 * @param activeTetromino The tetromino being checked.
+	 * @return True if it has landed.
+	 */
+	public boolean CheckLanded(ActiveTetromino activeTetromino);
+
+	/**
+	 * Determine how many rows a given tetromino can fall before it lands.
+	 *
+	 * @param activeTetromino The tetromino being dropped.
+	 * @return The number of rows the tetromino can fall.
+	 */
+	public int getDropDistance(ActiveTetromino activeTetromino);
+
+	/**
+	 * Get a 64-bit hash of this board's position, covering both the placed
+	 * tetrominos and the active tetromino. All implementations compute the same
+	 * hash for the same position.
+	 *
+	 * @return The position hash.
+	 */
+	public long getHash();
+}
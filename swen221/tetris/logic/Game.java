@@ -3,7 +3,9 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.logic;
 
+import java.util.ArrayDeque;
 import java.util.Iterator;
+import swen221.tetris.metrics.GameMetrics;
 import swen221.tetris.moves.Move;
 import swen221.tetris.tetromino.*;
 
@@ -12,6 +14,26 @@ import swen221.tetris.tetromino.*;
  * and updates the board accordingly. Likewise, it provides an API to access the
  * board itself. Finally, it determines when the game is over (i.e. because the
  * board is full).
+ * <p>
+ * By default, each move produces a new board. For simulation (e.g. a search
+ * over possible moves), a game can instead be made <i>mutable</i>. In this
+ * mode, moves update the board in place and every change is recorded, such that
+ * moves and clock cycles can be retracted using <code>undo()</code> or
+ * <code>undoTo()</code> without allocating new boards.
+ * <p>
+ * The representation of the board is determined by a
+ * <code>BoardEngine.Factory</code>, which can be given when the game is
+ * constructed. A board which a game replaces is released, unless it was
+ * obtained from <code>getActiveEngine()</code> and so may still be in use.
+ * Such boards are left to their owner, and an off-heap board which is never
+ * released is reclaimed once it becomes unreachable (see
+ * <code>BoardArena</code>). Code which only reads the current board, such as a
+ * renderer, should use <code>getActiveView()</code> so that boards are still
+ * released promptly.
+ * <p>
+ * Each clock cycle and move can be recorded, along with the time it took, by
+ * giving the game some metrics (see <code>setMetrics()</code>). By default,
+ * nothing is recorded.
  *
  * @author David J. Pearce
  * @author Marco Servetto
@@ -28,10 +50,22 @@ public class Game {
 	 */
 	private ActiveTetromino nextTetromino;
 
+	/**
+	 * Constructs the boards used by this game.
+	 */
+	private final BoardEngine.Factory engine;
+
 	/**
 	 * The current state of the game board.
 	 */
-	private Board board;
+	private BoardEngine board;
+
+	/**
+	 * True if the current board has been handed out by
+	 * <code>getActiveEngine()</code>, in which case it is not released when it
+	 * is replaced.
+	 */
+	private boolean exposed;
 
 	/**
 	 * Records the number of lines which have been removed.
@@ -43,6 +77,48 @@ public class Game {
 	 */
 	private int score;
 
+	/**
+	 * The points scored for removing one to four lines at once, which are
+	 * multiplied by one more than the current level. The level increases for
+	 * every ten lines removed.
+	 */
+	private static final int[] POINTS = { 0, 40, 100, 300, 1200 };
+
+	/**
+	 * Where the clock cycles and moves of this game are recorded, or
+	 * <code>null</code> if they are not recorded.
+	 */
+	private GameMetrics metrics;
+
+	/**
+	 * Journal tag marking the start of a move or clock cycle, recorded along with
+	 * the board mark at that point.
+	 */
+	private static final int UNDO_STEP = 0;
+	/**
+	 * Journal tag for the promotion of the next tetromino, recorded along with the
+	 * board mark at that point and the tetromino which was next beforehand.
+	 */
+	private static final int UNDO_NEXT = 1;
+	/**
+	 * Journal tag for the removal of lines, recorded along with the board mark at
+	 * that point, and preceded by the lines and score beforehand.
+	 */
+	private static final int UNDO_SCORE = 2;
+
+	/**
+	 * Records the steps taken in mutable mode, or <code>null</code> if this game
+	 * is not mutable.
+	 */
+	private Journal history;
+
+	/**
+	 * Tetrominos which were taken from the sequence, but have since been returned
+	 * by undoing their promotion. These are issued again before continuing with the
+	 * sequence.
+	 */
+	private final ArrayDeque<ActiveTetromino> returned = new ArrayDeque<>();
+
 	/**
 	 * Construct a new game instance for a given sequence of tetromino, and assuming
 	 * given board dimensions.
@@ -52,9 +128,23 @@ public class Game {
 	 * @param height   The height (in rows) of the board.
 	 */
 	public Game(Iterator<Tetromino> sequence, int width, int height) {
+		this(sequence, width, height, BoardEngine.defaultFactory());
+	}
+
+	/**
+	 * Construct a new game instance for a given sequence of tetromino, using a
+	 * given implementation of the board.
+	 *
+	 * @param sequence The sequence of tetromino to use during the game.
+	 * @param width    The width (in columns) of the board.
+	 * @param height   The height (in rows) of the board.
+	 * @param engine   Constructs the boards used by the game.
+	 */
+	public Game(Iterator<Tetromino> sequence, int width, int height, BoardEngine.Factory engine) {
 		this.tetrominoSequence = sequence;
+		this.engine = engine;
 		// Initial boards list with an empty board.
-		this.board = new Board(sequence, width, height);
+		this.board = engine.create(width, height);
 		// Initialise next tetromino
 		this.nextTetromino = nextActiveTetromino();
 	}
@@ -78,11 +168,64 @@ public class Game {
 	}
 
 	/**
-	 * Get the current board being acted upon.
+	 * Get the metrics into which this game records its clock cycles and moves.
+	 *
+	 * @return The metrics, or <code>null</code> if nothing is recorded.
+	 */
+	public GameMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the metrics into which this game records its clock cycles and moves.
+	 * By default, there are none and nothing is recorded.
+	 *
+	 * @param metrics The metrics, or <code>null</code> if nothing should be
+	 *                recorded.
+	 */
+	public void setMetrics(GameMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Get the current board being acted upon. If this game does not use the
+	 * reference implementation, this is a snapshot of the current board (see
+	 * <code>getActiveEngine()</code>).
 	 *
 	 * @return The current board.
 	 */
 	public Board getActiveBoard() {
+		if (board instanceof Board) {
+			exposed = true;
+			return (Board) board;
+		}
+		return Board.valueOf(board);
+	}
+
+	/**
+	 * Get a read-only view of the current board, using whichever implementation
+	 * this game was constructed with. Unlike <code>getActiveEngine()</code>, this
+	 * does not prevent the board from being released once it is replaced. Hence,
+	 * the view must not be used after the next move, clock cycle or reset of this
+	 * game. A board which must be kept for longer can be copied using
+	 * <code>Board.valueOf()</code>.
+	 *
+	 * @return The current board.
+	 */
+	public BoardView getActiveView() {
+		return board;
+	}
+
+	/**
+	 * Get the current board being acted upon, using whichever implementation this
+	 * game was constructed with. The board is not released when this game
+	 * replaces it, since it may still be in use. Code which only reads the board
+	 * should use <code>getActiveView()</code> instead.
+	 *
+	 * @return The current board.
+	 */
+	public BoardEngine getActiveEngine() {
+		exposed = true;
 		return board;
 	}
 
@@ -95,6 +238,81 @@ public class Game {
 		return nextTetromino.getUnderlyingTetromino();
 	}
 
+	/**
+	 * Enable or disable mutable mode for this game. In mutable mode, moves update
+	 * the current board in place and all changes are recorded so they can be
+	 * undone. Disabling mutable mode discards any recorded changes.
+	 *
+	 * @param mutable True if the game should be mutable.
+	 */
+	public void setMutable(boolean mutable) {
+		board.setUndoable(mutable);
+		history = mutable ? new Journal() : null;
+	}
+
+	/**
+	 * Check whether this game is in mutable mode.
+	 *
+	 * @return True if the game is mutable.
+	 */
+	public boolean isMutable() {
+		return history != null;
+	}
+
+	/**
+	 * Mark the current state of this game, such that it can be returned to later
+	 * using <code>undoTo()</code>. This requires the game to be mutable.
+	 *
+	 * @return The mark identifying the current state.
+	 */
+	public int mark() {
+		if (history == null) {
+			throw new IllegalStateException("game is not mutable");
+		}
+		return board.mark();
+	}
+
+	/**
+	 * Undo the most recent move or clock cycle applied to this game. This
+	 * requires the game to be mutable.
+	 */
+	public void undo() {
+		if (history == null || history.size() == 0) {
+			throw new IllegalStateException("nothing to undo");
+		}
+		// Find the start of the most recent step
+		int depth = 0;
+		while (history.peek(depth) != UNDO_STEP) {
+			depth += history.peek(depth) == UNDO_SCORE ? 4 : 2;
+		}
+		undoTo(history.peek(depth + 1));
+	}
+
+	/**
+	 * Undo all moves and clock cycles applied to this game since a given mark was
+	 * taken. This requires the game to be mutable.
+	 *
+	 * @param mark A mark previously returned by <code>mark()</code>.
+	 */
+	public void undoTo(int mark) {
+		if (history == null) {
+			throw new IllegalStateException("game is not mutable");
+		}
+		while (history.size() > 0 && history.peek(1) >= mark) {
+			int tag = history.pop();
+			history.pop();
+			if (tag == UNDO_NEXT) {
+				// Return the next tetromino to be issued again
+				returned.push(nextTetromino);
+				nextTetromino = (ActiveTetromino) history.popRef();
+			} else if (tag == UNDO_SCORE) {
+				score = history.pop();
+				lines = history.pop();
+			}
+		}
+		board.undoTo(mark);
+	}
+
 	/**
 	 * Check whether the game is over. This happens when we can no longer place the
 	 * next tetromino.
@@ -115,7 +333,14 @@ public class Game {
 		// reset the score
 		this.score = 0;
 		// reset the board
-		this.board = new Board(tetrominoSequence, board.getWidth(), board.getHeight());
+		BoardEngine old = board;
+		this.board = engine.create(old.getWidth(), old.getHeight());
+		release(old);
+		recordReplaced();
+		// NOTE: history cannot be undone beyond a reset
+		if (history != null) {
+			setMutable(true);
+		}
 	}
 
 	/**
@@ -126,10 +351,64 @@ public class Game {
 	 * @return True if the move was applied, false otherwise.
 	 */
 	public boolean apply(Move move) {
-		// Check whether the move was valid as, if not, then it's ignored.
-		if (move.isValid(board)) {
-			// Yes, move is valid therefore apply it for real.
-			board = move.apply(board);
+		if (metrics == null) {
+			return applyMove(move);
+		}
+		long start = System.nanoTime();
+		boolean applied = applyMove(move);
+		metrics.recordMove(move, applied, System.nanoTime() - start);
+		return applied;
+	}
+
+	/**
+	 * Clock the game for another cycle. This will apply gravity to the board and
+	 * check whether or not the active tetromino has landed. If the piece has
+	 * landed, then we will remove full rows, etc.
+	 */
+	public void clock() {
+		if (metrics == null) {
+			tick();
+			return;
+		}
+		long start = System.nanoTime();
+		tick();
+		metrics.recordClock(System.nanoTime() - start);
+	}
+
+	// ======================================================================
+	// Helper methods
+	// ======================================================================
+
+	/**
+	 * Apply a given move to the board, if it is valid.
+	 *
+	 * @param move The move to apply to the given board.
+	 * @return True if the move was applied, false otherwise.
+	 */
+	private boolean applyMove(Move move) {
+		if (history != null) {
+			// In mutable mode, update the board in place.
+			int mark = board.mark();
+			if (move.applyInPlace(board)) {
+				// NOTE: a move which changed nothing (e.g. dropping a tetromino
+				// which has already landed) is not a step which can be undone
+				if (board.mark() != mark) {
+					history.push(mark);
+					history.push(UNDO_STEP);
+				}
+				return true;
+			}
+			return false;
+		}
+		// Validate and apply the move in one step as, if invalid, it's ignored.
+		BoardEngine next = move.tryApply(board);
+		if (next != null) {
+			// Yes, move is valid therefore keep the updated board.
+			if (next != board) {
+				release(board);
+				recordReplaced();
+			}
+			board = next;
 			//
 			return true;
 		} else {
@@ -139,11 +418,13 @@ public class Game {
 	}
 
 	/**
-	 * Clock the game for another cycle. This will apply gravity to the board and
-	 * check whether or not the active tetromino has landed. If the piece has
-	 * landed, then we will remove full rows, etc.
+	 * Perform a single clock cycle.
 	 */
-	public void clock() {
+	private void tick() {
+		if (history != null) {
+			history.push(board.mark());
+			history.push(UNDO_STEP);
+		}
 		//
 		ActiveTetromino activeTetromino = board.getActiveTetromino();
 		// Check whether it has landed
@@ -151,7 +432,14 @@ public class Game {
 			//place the teromino
 			board.placeTetromino(activeTetromino);
 			board.setActiveTetromino(null);
-			board.LineProcess();
+			//only rows covered by the tetromino can have become full
+			int removed = board.clearLines(activeTetromino.getMinY(), activeTetromino.getMaxY()).length;
+			if (metrics != null) {
+				metrics.recordLock(removed);
+			}
+			if (removed > 0) {
+				updateScore(removed);
+			}
 			return;
 		}
 
@@ -178,6 +466,11 @@ public class Game {
 			// promote next tetromino to be active
 
 			activeTetromino = nextTetromino;
+			if (history != null) {
+				history.pushRef(nextTetromino);
+				history.push(board.mark());
+				history.push(UNDO_NEXT);
+			}
 			// select the next one in sequence
 			nextTetromino = nextActiveTetromino();
 		} else {
@@ -187,9 +480,43 @@ public class Game {
 		board.setActiveTetromino(activeTetromino);
 	}
 
-	// ======================================================================
-	// Helper methods
-	// ======================================================================
+	/**
+	 * Update the lines and score after some lines have been removed at once.
+	 *
+	 * @param removed The number of lines removed.
+	 */
+	private void updateScore(int removed) {
+		if (history != null) {
+			history.push(lines);
+			history.push(score);
+			history.push(board.mark());
+			history.push(UNDO_SCORE);
+		}
+		score += POINTS[Math.min(removed, POINTS.length - 1)] * ((lines / 10) + 1);
+		lines += removed;
+	}
+
+	/**
+	 * Release a board which this game has replaced, unless it has been handed
+	 * out and so may still be in use.
+	 *
+	 * @param old The board which was replaced.
+	 */
+	private void release(BoardEngine old) {
+		if (!exposed) {
+			old.release();
+		}
+		exposed = false;
+	}
+
+	/**
+	 * Record that the current board has been replaced by a new one.
+	 */
+	private void recordReplaced() {
+		if (metrics != null) {
+			metrics.recordBoardReplaced();
+		}
+	}
 
 	/**
 	 * Determine the next active tetromino for the board.
@@ -202,6 +529,10 @@ public class Game {
 		int cy = board.getHeight() - 2;
 		// set next tetromino
 		//Tetromino tetromino = tetrominoSequence.next();
+		if (!returned.isEmpty()) {
+			// Reissue a tetromino whose promotion was undone
+			return returned.pop();
+		}
 		return new ActiveTetromino(cx, cy, tetrominoSequence.next());
 	}
 }
@@ -0,0 +1,111 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.logic;
+
+import java.util.Arrays;
+
+/**
+ * A compact stack of undo entries. Each entry is a sequence of integers (e.g.
+ * a tag followed by indices and old values), optionally accompanied by object
+ * references (e.g. an overwritten tetromino). Entries are pushed as changes are
+ * made and popped in reverse order to undo them. Since the entries are stored
+ * in flat arrays which only grow, recording a change does not normally
+ * allocate.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+final class Journal {
+	/**
+	 * The integer components of all entries.
+	 */
+	private int[] ints = new int[64];
+	/**
+	 * The number of integers currently on the stack.
+	 */
+	private int size;
+	/**
+	 * The object components of all entries.
+	 */
+	private Object[] refs = new Object[16];
+	/**
+	 * The number of objects currently on the stack.
+	 */
+	private int refCount;
+
+	/**
+	 * Get the number of integers on the stack. This can be used to mark the
+	 * current position, such that all later entries can be undone.
+	 *
+	 * @return The current size.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Push an integer onto the stack.
+	 *
+	 * @param value The value to push.
+	 */
+	public void push(int value) {
+		if (size == ints.length) {
+			ints = Arrays.copyOf(ints, size * 2);
+		}
+		ints[size++] = value;
+	}
+
+	/**
+	 * Pop the integer on top of the stack.
+	 *
+	 * @return The value popped.
+	 */
+	public int pop() {
+		return ints[--size];
+	}
+
+	/**
+	 * Read an integer on the stack without popping it.
+	 *
+	 * @param depth The distance from the top of the stack, where zero is the top.
+	 * @return The value at that position.
+	 */
+	public int peek(int depth) {
+		return ints[size - 1 - depth];
+	}
+
+	/**
+	 * Push an object onto the stack.
+	 *
+	 * @param ref The object to push, which may be <code>null</code>.
+	 */
+	public void pushRef(Object ref) {
+		if (refCount == refs.length) {
+			refs = Arrays.copyOf(refs, refCount * 2);
+		}
+		refs[refCount++] = ref;
+	}
+
+	/**
+	 * Pop the object on top of the stack.
+	 *
+	 * @return The object popped.
+	 */
+	public Object popRef() {
+		Object ref = refs[--refCount];
+		// Don't keep the object alive unnecessarily
+		refs[refCount] = null;
+		return ref;
+	}
+
+	/**
+	 * Remove all entries from the stack.
+	 */
+	public void clear() {
+		Arrays.fill(refs, 0, refCount, null);
+		size = 0;
+		refCount = 0;
+	}
+}
@@ -0,0 +1,348 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.logic;
+
+import java.util.Arrays;
+
+import swen221.tetris.tetromino.O_Tetromino;
+import swen221.tetris.tetromino.Tetromino;
+import swen221.tetris.tetromino.Tetromino.Color;
+
+/**
+ * An immutable row of placed tetrominos on a board. Since rows never change,
+ * they can be shared freely between boards, and updating a cell produces a new
+ * row. Rows are also hash-consed through a small cache, such that rows with
+ * identical content are typically represented by the same object. Each row
+ * maintains an occupancy bitmask of its cells, which allows collision and line
+ * detection to operate on whole rows at a time.
+ * <p>
+ * Cells record only the colour of the tetromino placed there, since nothing
+ * else about a placed tetromino is ever needed. This keeps each cell to a
+ * single byte, and means rows do not keep placed tetrominos alive. When a cell
+ * is read, a shared placeholder tetromino of the appropriate colour is
+ * returned.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+final class Row {
+	/**
+	 * A cache of recently constructed rows, indexed by their key. Rows are
+	 * immutable, so threads may race when updating the cache without affecting
+	 * correctness; at worst, an opportunity to share a row is lost. Since the cache
+	 * has a fixed size, it never holds more than a bounded number of rows.
+	 */
+	private static final Row[] CACHE = new Row[1 << 14];
+
+	/**
+	 * The placeholder tetromino returned for each colour code. Since a placed
+	 * tetromino has neither a position nor a shape of its own, any tetromino of
+	 * the right colour serves.
+	 */
+	private static final Tetromino[] PLACEHOLDERS;
+
+	static {
+		Color[] colors = Color.values();
+		PLACEHOLDERS = new Tetromino[colors.length + 1];
+		for (int i = 0; i < colors.length; ++i) {
+			PLACEHOLDERS[i + 1] = O_Tetromino.valueOf(colors[i]);
+		}
+	}
+
+	/**
+	 * The colour code of each column in this row. This is zero for an empty cell,
+	 * and otherwise one more than the ordinal of the colour placed there.
+	 */
+	private final byte[] cells;
+
+	/**
+	 * The occupancy bitmask for this row. Bit <code>x % 64</code> of word
+	 * <code>x / 64</code> is set when column <code>x</code> is occupied.
+	 */
+	private final long[] mask;
+
+	/**
+	 * The number of occupied cells in this row.
+	 */
+	private final int count;
+
+	/**
+	 * A hash of the contents of this row, computed by combining a key for each
+	 * occupied cell using exclusive-or. This can be updated incrementally as
+	 * cells change.
+	 */
+	private final long key;
+
+	/**
+	 * Construct a new row.
+	 *
+	 * @param cells The colour code of each column.
+	 * @param mask  The occupancy bitmask.
+	 * @param count The number of occupied cells.
+	 * @param key   The hash of the row's contents.
+	 */
+	private Row(byte[] cells, long[] mask, int count, long key) {
+		this.cells = cells;
+		this.mask = mask;
+		this.count = count;
+		this.key = key;
+	}
+
+	/**
+	 * Get the empty row for a given width.
+	 *
+	 * @param width The number of columns in the row.
+	 * @return An empty row.
+	 */
+	public static Row empty(int width) {
+		Row row = CACHE[slot(0, width)];
+		if (row != null && row.count == 0 && row.cells.length == width) {
+			return row;
+		}
+		row = new Row(new byte[width], new long[(width + 63) >>> 6], 0, 0);
+		CACHE[slot(0, width)] = row;
+		return row;
+	}
+
+	/**
+	 * Get the tetromino located in a given column of this row. This is a shared
+	 * placeholder with the colour of the tetromino which was placed there.
+	 *
+	 * @param x The column of interest.
+	 * @return The tetromino, or <code>null</code> if the cell is empty.
+	 */
+	public Tetromino get(int x) {
+		return PLACEHOLDERS[cells[x]];
+	}
+
+	/**
+	 * Get the shared placeholder tetromino for a given colour code.
+	 *
+	 * @param code The colour code.
+	 * @return The placeholder, or <code>null</code> if the code is zero.
+	 */
+	static Tetromino placeholder(int code) {
+		return PLACEHOLDERS[code];
+	}
+
+	/**
+	 * Get the colour code of a given column of this row.
+	 *
+	 * @param x The column of interest.
+	 * @return Zero if the cell is empty, otherwise one more than the ordinal of
+	 *         its colour.
+	 */
+	public int getCode(int x) {
+		return cells[x];
+	}
+
+	/**
+	 * Check whether a given column of this row is occupied.
+	 *
+	 * @param x The column of interest, which must be within the row.
+	 * @return True if the cell is occupied.
+	 */
+	public boolean isOccupied(int x) {
+		return (mask[x >>> 6] & (1L << x)) != 0;
+	}
+
+	/**
+	 * Get a word of the occupancy bitmask of this row.
+	 *
+	 * @param i The index of the word, where word <code>i</code> covers columns
+	 *          <code>64i</code> to <code>64i + 63</code>.
+	 * @return The word.
+	 */
+	public long getWord(int i) {
+		return mask[i];
+	}
+
+	/**
+	 * Copy the colour codes of this row into an array.
+	 *
+	 * @param out    The array to copy into.
+	 * @param offset The position in the array of the first column.
+	 */
+	public void copyTo(byte[] out, int offset) {
+		System.arraycopy(cells, 0, out, offset, cells.length);
+	}
+
+	/**
+	 * Check whether every cell in this row is occupied.
+	 *
+	 * @return True if the row is full.
+	 */
+	public boolean isFull() {
+		return count == cells.length;
+	}
+
+	/**
+	 * Check whether no cell in this row is occupied.
+	 *
+	 * @return True if the row is empty.
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Get a hash of the contents of this row. Rows with the same contents always
+	 * have the same key.
+	 *
+	 * @return The key.
+	 */
+	public long getKey() {
+		return key;
+	}
+
+	/**
+	 * Check whether this row holds the same colours in every column as a given
+	 * row. Since placed tetrominos are displayed only by their colour, rows which
+	 * are the same in this sense are indistinguishable.
+	 *
+	 * @param other The row being compared against.
+	 * @return True if the rows have the same contents.
+	 */
+	public boolean sameContents(Row other) {
+		if (this == other) {
+			return true;
+		}
+		return key == other.key && count == other.count && Arrays.equals(cells, other.cells);
+	}
+
+	/**
+	 * Check whether a given mask overlaps any occupied cells in this row. Bit
+	 * <code>i</code> of the mask corresponds to column <code>x + i</code>, and all
+	 * set bits must lie within the row.
+	 *
+	 * @param x    The column corresponding to the lowest bit of the mask.
+	 * @param bits The cells being checked.
+	 * @return True if at least one cell in the mask is already occupied.
+	 */
+	public boolean collides(int x, long bits) {
+		int i = x >>> 6;
+		int shift = x & 63;
+		if ((mask[i] & (bits << shift)) != 0) {
+			return true;
+		}
+		// Check any bits which spill over into the next word
+		long spill = shift == 0 ? 0 : bits >>> (64 - shift);
+		return spill != 0 && (mask[i + 1] & spill) != 0;
+	}
+
+	/**
+	 * Produce a row which is identical to this row, except that a given set of
+	 * cells hold a given tetromino. If an identical row is already in the cache,
+	 * then that is returned instead of allocating a new one.
+	 *
+	 * @param x    The column corresponding to the lowest bit of the mask.
+	 * @param bits The cells being updated, where bit <code>i</code> corresponds to
+	 *             column <code>x + i</code>.
+	 * @param t    The tetromino to place, which can be <code>null</code> if the
+	 *             cells are to be cleared.
+	 * @return The updated row.
+	 */
+	public Row fill(int x, long bits, Tetromino t) {
+		byte code = (byte) (t == null ? 0 : t.getColor().ordinal() + 1);
+		// Determine the count and key of the updated row
+		int n = count;
+		long k = key;
+		for (long b = bits; b != 0; b &= b - 1) {
+			int column = x + Long.numberOfTrailingZeros(b);
+			byte old = cells[column];
+			if (old != 0) {
+				n = n - 1;
+				k ^= key(column, old);
+			}
+			if (code != 0) {
+				n = n + 1;
+				k ^= key(column, code);
+			}
+		}
+		// Check whether an identical row already exists
+		int slot = slot(k, cells.length);
+		Row row = CACHE[slot];
+		if (row != null && row.key == k && row.count == n && row.matches(this, x, bits, code)) {
+			return row;
+		}
+		// Construct the updated row
+		byte[] ncells = cells.clone();
+		long[] nmask = mask.clone();
+		for (long b = bits; b != 0; b &= b - 1) {
+			int column = x + Long.numberOfTrailingZeros(b);
+			ncells[column] = code;
+			if (code != 0) {
+				nmask[column >>> 6] |= 1L << column;
+			} else {
+				nmask[column >>> 6] &= ~(1L << column);
+			}
+		}
+		row = new Row(ncells, nmask, n, k);
+		CACHE[slot] = row;
+		return row;
+	}
+
+	/**
+	 * Check whether this row has the same contents as a given row after a given
+	 * set of its cells are updated.
+	 *
+	 * @param other The row being updated.
+	 * @param x     The column corresponding to the lowest bit of the mask.
+	 * @param bits  The cells being updated.
+	 * @param code  The colour code being placed in those cells.
+	 * @return True if the rows would be identical.
+	 */
+	private boolean matches(Row other, int x, long bits, byte code) {
+		if (cells.length != other.cells.length) {
+			return false;
+		}
+		for (int i = 0; i < cells.length; ++i) {
+			int offset = i - x;
+			boolean updated = offset >= 0 && offset < 64 && (bits & (1L << offset)) != 0;
+			if (cells[i] != (updated ? code : other.cells[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compute the key for a given colour in a given column. The keys for the
+	 * occupied cells of a row are combined to give the key of the row. This mixes
+	 * the column and colour such that keys are effectively random, as for a
+	 * Zobrist hash, but without requiring a precomputed table.
+	 *
+	 * @param x    The column.
+	 * @param code The (non-zero) colour code in that column.
+	 * @return The key.
+	 */
+	static long key(int x, int code) {
+		return mix(((long) x << 8) | code);
+	}
+
+	/**
+	 * Scramble the bits of a given value. This is the finaliser from the SplitMix64
+	 * generator, which ensures that nearby inputs give unrelated outputs.
+	 *
+	 * @param z The value to scramble.
+	 * @return The scrambled value.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Determine the cache slot for a row with a given key and width.
+	 *
+	 * @param key   The key of the row.
+	 * @param width The width of the row.
+	 * @return The slot index.
+	 */
+	private static int slot(long key, int width) {
+		return ((int) (key ^ (key >>> 32)) + width) & (CACHE.length - 1);
+	}
+}
@@ -0,0 +1,296 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.logic;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import swen221.tetris.tetromino.Tetromino;
+
+/**
+ * A fixed-size cache of evaluation results for board positions, such as might
+ * be used when searching over move orders which converge on the same position.
+ * Positions are identified by a 64-bit key (see <code>key()</code>) and each
+ * result consists of a value and the depth of search used to compute it.
+ * <p>
+ * The table is open-addressed and stores only primitives, so its memory use is
+ * fixed when it is constructed. When a slot is already taken, the replacement
+ * policy determines which result is kept. The table can be used concurrently
+ * by several threads without locking. Each slot holds the result alongside its
+ * key combined with the result using exclusive-or, such that a slot which is
+ * torn by concurrent writes simply fails to match on lookup.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public final class TranspositionTable {
+	/**
+	 * Determines which result is kept when two positions map to the same slot.
+	 */
+	public enum Policy {
+		/**
+		 * Keep whichever result was computed with the greater search depth.
+		 */
+		DEPTH_PREFERRED,
+		/**
+		 * Always keep the most recent result.
+		 */
+		ALWAYS_REPLACE,
+		/**
+		 * Each position maps to two slots, where the first is depth-preferred and
+		 * the second always holds the most recent result which did not qualify for
+		 * the first.
+		 */
+		TWO_TIER
+	}
+
+	/**
+	 * Returned by <code>lookup()</code> when no result is found.
+	 */
+	public static final long NONE = -1L;
+
+	/**
+	 * The largest depth which can be stored.
+	 */
+	public static final int MAX_DEPTH = 0x3FFFFFFF;
+
+	/**
+	 * Set in every stored result, such that an empty slot never matches a key.
+	 */
+	private static final long OCCUPIED = 1L << 62;
+
+	/**
+	 * The slots of this table, where slot <code>i</code> is held in elements
+	 * <code>2i</code> (the key combined with the result) and <code>2i+1</code>
+	 * (the result).
+	 */
+	private final AtomicLongArray slots;
+
+	/**
+	 * The mask used to map a key to its bucket.
+	 */
+	private final int mask;
+
+	/**
+	 * The number of slots in each bucket.
+	 */
+	private final int ways;
+
+	/**
+	 * The replacement policy used by this table.
+	 */
+	private final Policy policy;
+
+	/**
+	 * The number of lookups which found a result.
+	 */
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * The number of lookups which did not find a result.
+	 */
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Construct an empty table with a given capacity and replacement policy.
+	 *
+	 * @param capacity The maximum number of results held, which is rounded up to
+	 *                 a power of two.
+	 * @param policy   The replacement policy.
+	 */
+	public TranspositionTable(int capacity, Policy policy) {
+		if (capacity <= 0 || capacity > (1 << 29)) {
+			throw new IllegalArgumentException("Invalid capacity (" + capacity + ")");
+		}
+		int n = Integer.highestOneBit(capacity);
+		n = n < capacity ? n << 1 : n;
+		this.policy = policy;
+		this.ways = policy == Policy.TWO_TIER ? 2 : 1;
+		this.mask = Math.max(1, n / ways) - 1;
+		this.slots = new AtomicLongArray(2 * ways * (mask + 1));
+	}
+
+	/**
+	 * Determine the key for a given board position, when a given tetromino is due
+	 * to be issued next.
+	 *
+	 * @param board The board position.
+	 * @param next  The next tetromino, which may be <code>null</code>.
+	 * @return The key.
+	 */
+	public static long key(BoardEngine board, Tetromino next) {
+		long h = board.getHash();
+		if (next != null) {
+			h ^= Row.mix((((long) next.getName().hashCode()) << 16) ^ (next.getOrientation().ordinal() << 8)
+					^ next.getColor().ordinal() ^ 0x5DEECE66DL);
+		}
+		return h;
+	}
+
+	/**
+	 * Get the replacement policy of this table.
+	 *
+	 * @return The policy.
+	 */
+	public Policy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Get the maximum number of results this table can hold.
+	 *
+	 * @return The capacity.
+	 */
+	public int getCapacity() {
+		return slots.length() / 2;
+	}
+
+	/**
+	 * Look up the result for a given key.
+	 *
+	 * @param key The key of the position.
+	 * @return The result, which can be decoded with <code>getValue()</code> and
+	 *         <code>getDepth()</code>, or <code>NONE</code> if there is none.
+	 */
+	public long lookup(long key) {
+		int base = bucket(key);
+		for (int i = 0; i < ways; ++i) {
+			int s = (base + i) << 1;
+			long data = slots.get(s + 1);
+			if ((data & OCCUPIED) != 0 && (slots.get(s) ^ data) == key) {
+				hits.increment();
+				return data;
+			}
+		}
+		misses.increment();
+		return NONE;
+	}
+
+	/**
+	 * Store the result for a given key, subject to the replacement policy.
+	 *
+	 * @param key   The key of the position.
+	 * @param depth The depth of search used to compute the value.
+	 * @param value The value.
+	 */
+	public void store(long key, int depth, int value) {
+		if (depth < 0 || depth > MAX_DEPTH) {
+			throw new IllegalArgumentException("Invalid depth (" + depth + ")");
+		}
+		long data = OCCUPIED | ((long) depth << 32) | (value & 0xFFFFFFFFL);
+		int s = bucket(key) << 1;
+		switch (policy) {
+		case ALWAYS_REPLACE:
+			write(s, key, data);
+			break;
+		case DEPTH_PREFERRED:
+			if (matches(s, key) || depth >= getDepth(slots.get(s + 1))) {
+				write(s, key, data);
+			}
+			break;
+		case TWO_TIER:
+		default: {
+			long old = slots.get(s + 1);
+			long oldKey = slots.get(s) ^ old;
+			if (oldKey == key || depth >= getDepth(old)) {
+				if (oldKey != key && (old & OCCUPIED) != 0) {
+					// Demote the previous occupant to the always-replace slot
+					write(s + 2, oldKey, old);
+				}
+				write(s, key, data);
+			} else {
+				write(s + 2, key, data);
+			}
+		}
+		}
+	}
+
+	/**
+	 * Remove all results from this table. This should not be called concurrently
+	 * with other operations.
+	 */
+	public void clear() {
+		for (int i = 0; i < slots.length(); ++i) {
+			slots.set(i, 0);
+		}
+		hits.reset();
+		misses.reset();
+	}
+
+	/**
+	 * Get the number of lookups which found a result.
+	 *
+	 * @return The number of hits.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the number of lookups which did not find a result.
+	 *
+	 * @return The number of misses.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Extract the value from a result returned by <code>lookup()</code>.
+	 *
+	 * @param result The result.
+	 * @return The value.
+	 */
+	public static int getValue(long result) {
+		return (int) result;
+	}
+
+	/**
+	 * Extract the search depth from a result returned by <code>lookup()</code>.
+	 *
+	 * @param result The result.
+	 * @return The depth, or -1 if the result is <code>NONE</code>.
+	 */
+	public static int getDepth(long result) {
+		if (result == NONE) {
+			return -1;
+		}
+		return (int) (result >>> 32) & MAX_DEPTH;
+	}
+
+	/**
+	 * Determine the first slot of the bucket for a given key.
+	 *
+	 * @param key The key.
+	 * @return The index of the first slot.
+	 */
+	private int bucket(long key) {
+		return ((int) (key ^ (key >>> 32)) & mask) * ways;
+	}
+
+	/**
+	 * Check whether a given slot currently holds a given key.
+	 *
+	 * @param s   The index of the slot's first element.
+	 * @param key The key.
+	 * @return True if the slot holds that key.
+	 */
+	private boolean matches(int s, long key) {
+		long data = slots.get(s + 1);
+		return (data & OCCUPIED) != 0 && (slots.get(s) ^ data) == key;
+	}
+
+	/**
+	 * Overwrite a given slot.
+	 *
+	 * @param s    The index of the slot's first element.
+	 * @param key  The key.
+	 * @param data The result.
+	 */
+	private void write(int s, long key, long data) {
+		slots.set(s, key ^ data);
+		slots.set(s + 1, data);
+	}
+}
@@ -0,0 +1,539 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import swen221.tetris.moves.Move;
+
+/**
+ * Records what happens during games, such as clock cycles, moves and lines
+ * removed, along with how long these take. One instance can be shared by any
+ * number of games on any number of threads, since all counters are striped
+ * (see <code>LongAdder</code>) and so threads rarely contend. Games record
+ * nothing unless they are given metrics, such as <code>GLOBAL</code>. Metrics
+ * can also be given a parent, into which everything is recorded as well, such
+ * that each game can have its own metrics whilst still contributing to
+ * <code>GLOBAL</code>.
+ * <p>
+ * Boards record the boards they create and the time taken removing lines,
+ * whether or not they belong to a game. These are recorded into the metrics
+ * given to <code>setBoardMetrics()</code>, and are not recorded by default.
+ * <p>
+ * Recording never allocates, except on the first move of each type. The
+ * current values are obtained using <code>snapshot()</code>, which is cheap
+ * enough to be called frequently (e.g. by a monitoring tool). Individual
+ * counters can also be read directly, which is cheaper still.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public final class GameMetrics {
+	/**
+	 * The metrics shared by all games which are recorded, either directly or as
+	 * the parent of their own metrics.
+	 */
+	public static final GameMetrics GLOBAL = new GameMetrics();
+
+	/**
+	 * The metrics into which all boards record, or <code>null</code> if boards
+	 * record nothing.
+	 */
+	private static volatile GameMetrics boards;
+
+	/**
+	 * The metrics into which everything is also recorded, or <code>null</code>
+	 * if there are none.
+	 */
+	private final GameMetrics parent;
+
+	/**
+	 * The number of clock cycles.
+	 */
+	private final LongAdder clocks = new LongAdder();
+
+	/**
+	 * The number of tetrominos placed on the board.
+	 */
+	private final LongAdder locks = new LongAdder();
+
+	/**
+	 * The number of times lines were removed, where element <code>n - 1</code>
+	 * counts the removal of <code>n</code> lines at once.
+	 */
+	private final LongAdder[] clears = { new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder() };
+
+	/**
+	 * The number of times a game replaced its board with a new one.
+	 */
+	private final LongAdder replaced = new LongAdder();
+
+	/**
+	 * The number of boards created, including copies.
+	 */
+	private final LongAdder allocated = new LongAdder();
+
+	/**
+	 * The number of moves applied and rejected for each type of move.
+	 */
+	private final ConcurrentHashMap<Class<?>, LongAdder[]> moves = new ConcurrentHashMap<>();
+
+	/**
+	 * The time taken by each clock cycle.
+	 */
+	private final Histogram clockTime = new Histogram();
+
+	/**
+	 * The time taken by each move, whether applied or rejected.
+	 */
+	private final Histogram applyTime = new Histogram();
+
+	/**
+	 * The time taken by each attempt of a board to remove full lines.
+	 */
+	private final Histogram lineTime = new Histogram();
+
+	/**
+	 * Construct empty metrics.
+	 */
+	public GameMetrics() {
+		this(null);
+	}
+
+	/**
+	 * Construct empty metrics, where everything recorded is also recorded in a
+	 * given parent.
+	 *
+	 * @param parent The parent, which may be <code>null</code>.
+	 */
+	public GameMetrics(GameMetrics parent) {
+		this.parent = parent;
+	}
+
+	/**
+	 * Get the metrics into which all boards record.
+	 *
+	 * @return The metrics, or <code>null</code> if boards record nothing.
+	 */
+	public static GameMetrics getBoardMetrics() {
+		return boards;
+	}
+
+	/**
+	 * Set the metrics into which all boards record the boards they create and
+	 * the time taken removing lines. By default, there are none and nothing is
+	 * recorded.
+	 *
+	 * @param metrics The metrics, or <code>null</code> if nothing should be
+	 *                recorded.
+	 */
+	public static void setBoardMetrics(GameMetrics metrics) {
+		boards = metrics;
+	}
+
+	/**
+	 * Record a clock cycle.
+	 *
+	 * @param nanos The time taken (in nanoseconds).
+	 */
+	public void recordClock(long nanos) {
+		clocks.increment();
+		clockTime.record(nanos);
+		if (parent != null) {
+			parent.recordClock(nanos);
+		}
+	}
+
+	/**
+	 * Record a move.
+	 *
+	 * @param move    The move.
+	 * @param applied True if the move was applied, false if it was rejected.
+	 * @param nanos   The time taken (in nanoseconds).
+	 */
+	public void recordMove(Move move, boolean applied, long nanos) {
+		LongAdder[] counts = moves.get(move.getClass());
+		if (counts == null) {
+			counts = moves.computeIfAbsent(move.getClass(), k -> new LongAdder[] { new LongAdder(), new LongAdder() });
+		}
+		counts[applied ? 0 : 1].increment();
+		applyTime.record(nanos);
+		if (parent != null) {
+			parent.recordMove(move, applied, nanos);
+		}
+	}
+
+	/**
+	 * Record a tetromino being placed on the board, and the removal of any lines
+	 * this completed.
+	 *
+	 * @param lines The number of lines removed.
+	 */
+	public void recordLock(int lines) {
+		locks.increment();
+		if (lines > 0) {
+			clears[Math.min(lines, clears.length) - 1].increment();
+		}
+		if (parent != null) {
+			parent.recordLock(lines);
+		}
+	}
+
+	/**
+	 * Record a board checking for, and removing, full lines.
+	 *
+	 * @param nanos The time taken (in nanoseconds).
+	 */
+	public void recordLineTime(long nanos) {
+		lineTime.record(nanos);
+		if (parent != null) {
+			parent.recordLineTime(nanos);
+		}
+	}
+
+	/**
+	 * Record a board being created, either empty or as a copy of another.
+	 */
+	public void recordBoardAllocated() {
+		allocated.increment();
+		if (parent != null) {
+			parent.recordBoardAllocated();
+		}
+	}
+
+	/**
+	 * Record a game replacing its board with a new one. This happens when a game
+	 * is reset and, unless the game is mutable, when a move produces a new board.
+	 */
+	public void recordBoardReplaced() {
+		replaced.increment();
+		if (parent != null) {
+			parent.recordBoardReplaced();
+		}
+	}
+
+	/**
+	 * Get the number of clock cycles recorded.
+	 *
+	 * @return The number of clock cycles.
+	 */
+	public long getClocks() {
+		return clocks.sum();
+	}
+
+	/**
+	 * Get the number of times a given number of lines were removed at once.
+	 *
+	 * @param lines The number of lines, from one to four.
+	 * @return The number of times.
+	 */
+	public long getClears(int lines) {
+		if (lines < 1 || lines > clears.length) {
+			throw new IllegalArgumentException("Invalid lines (" + lines + ")");
+		}
+		return clears[lines - 1].sum();
+	}
+
+	/**
+	 * Get the total number of moves which were applied, or which were rejected.
+	 *
+	 * @param applied True for the moves applied, false for those rejected.
+	 * @return The number of moves.
+	 */
+	public long getMoves(boolean applied) {
+		long n = 0;
+		for (LongAdder[] counts : moves.values()) {
+			n += counts[applied ? 0 : 1].sum();
+		}
+		return n;
+	}
+
+	/**
+	 * Get the time taken by each clock cycle.
+	 *
+	 * @return The histogram of times.
+	 */
+	public Histogram getClockTime() {
+		return clockTime;
+	}
+
+	/**
+	 * Reset all metrics to zero. Events recorded concurrently may or may not be
+	 * kept.
+	 */
+	public void reset() {
+		clocks.reset();
+		locks.reset();
+		replaced.reset();
+		allocated.reset();
+		for (LongAdder c : clears) {
+			c.reset();
+		}
+		for (LongAdder[] counts : moves.values()) {
+			counts[0].reset();
+			counts[1].reset();
+		}
+		clockTime.reset();
+		applyTime.reset();
+		lineTime.reset();
+	}
+
+	/**
+	 * Take a snapshot of the metrics recorded so far.
+	 *
+	 * @return The snapshot.
+	 */
+	public Snapshot snapshot() {
+		long[] c = new long[clears.length];
+		for (int i = 0; i < c.length; ++i) {
+			c[i] = clears[i].sum();
+		}
+		TreeMap<String, long[]> m = new TreeMap<>();
+		for (Map.Entry<Class<?>, LongAdder[]> e : moves.entrySet()) {
+			m.put(e.getKey().getSimpleName(), new long[] { e.getValue()[0].sum(), e.getValue()[1].sum() });
+		}
+		return new Snapshot(clocks.sum(), locks.sum(), replaced.sum(), allocated.sum(), c, m, clockTime.snapshot(),
+				applyTime.snapshot(), lineTime.snapshot());
+	}
+
+	/**
+	 * An immutable view of the metrics recorded at some point.
+	 */
+	public static final class Snapshot {
+		/**
+		 * The number of clock cycles.
+		 */
+		private final long clocks;
+		/**
+		 * The number of tetrominos placed.
+		 */
+		private final long locks;
+		/**
+		 * The number of times a game replaced its board.
+		 */
+		private final long replaced;
+		/**
+		 * The number of boards created.
+		 */
+		private final long allocated;
+		/**
+		 * The number of times one to four lines were removed at once.
+		 */
+		private final long[] clears;
+		/**
+		 * The number of moves applied and rejected, by the name of the move type.
+		 */
+		private final Map<String, long[]> moves;
+		/**
+		 * The time taken by clock cycles.
+		 */
+		private final Histogram.Snapshot clockTime;
+		/**
+		 * The time taken by moves.
+		 */
+		private final Histogram.Snapshot applyTime;
+		/**
+		 * The time taken removing lines.
+		 */
+		private final Histogram.Snapshot lineTime;
+
+		/**
+		 * Construct a snapshot.
+		 *
+		 * @param clocks    The number of clock cycles.
+		 * @param locks     The number of tetrominos placed.
+		 * @param replaced  The number of times a game replaced its board.
+		 * @param allocated The number of boards created.
+		 * @param clears    The number of times one to four lines were removed.
+		 * @param moves     The number of moves applied and rejected by type.
+		 * @param clockTime The time taken by clock cycles.
+		 * @param applyTime The time taken by moves.
+		 * @param lineTime  The time taken removing lines.
+		 */
+		private Snapshot(long clocks, long locks, long replaced, long allocated, long[] clears,
+				Map<String, long[]> moves, Histogram.Snapshot clockTime, Histogram.Snapshot applyTime,
+				Histogram.Snapshot lineTime) {
+			this.clocks = clocks;
+			this.locks = locks;
+			this.replaced = replaced;
+			this.allocated = allocated;
+			this.clears = clears;
+			this.moves = Collections.unmodifiableMap(moves);
+			this.clockTime = clockTime;
+			this.applyTime = applyTime;
+			this.lineTime = lineTime;
+		}
+
+		/**
+		 * Get the number of clock cycles.
+		 *
+		 * @return The number of clock cycles.
+		 */
+		public long getClocks() {
+			return clocks;
+		}
+
+		/**
+		 * Get the number of tetrominos placed on the board.
+		 *
+		 * @return The number of tetrominos.
+		 */
+		public long getLocks() {
+			return locks;
+		}
+
+		/**
+		 * Get the number of times a game replaced its board with a new one.
+		 *
+		 * @return The number of times.
+		 */
+		public long getBoardsReplaced() {
+			return replaced;
+		}
+
+		/**
+		 * Get the number of boards created, including copies.
+		 *
+		 * @return The number of boards.
+		 */
+		public long getBoardsAllocated() {
+			return allocated;
+		}
+
+		/**
+		 * Get the number of times a given number of lines were removed at once.
+		 *
+		 * @param lines The number of lines, from one to four.
+		 * @return The number of times.
+		 */
+		public long getClears(int lines) {
+			if (lines < 1 || lines > clears.length) {
+				throw new IllegalArgumentException("Invalid lines (" + lines + ")");
+			}
+			return clears[lines - 1];
+		}
+
+		/**
+		 * Get the total number of lines removed.
+		 *
+		 * @return The number of lines.
+		 */
+		public long getLines() {
+			long n = 0;
+			for (int i = 0; i < clears.length; ++i) {
+				n += (i + 1) * clears[i];
+			}
+			return n;
+		}
+
+		/**
+		 * Get the names of the types of move which have been recorded.
+		 *
+		 * @return The names, in alphabetical order.
+		 */
+		public Iterable<String> getMoveTypes() {
+			return moves.keySet();
+		}
+
+		/**
+		 * Get the number of moves of a given type which were applied.
+		 *
+		 * @param type The name of the move type (e.g. <code>MoveLeft</code>).
+		 * @return The number of moves.
+		 */
+		public long getApplied(String type) {
+			long[] counts = moves.get(type);
+			return counts == null ? 0 : counts[0];
+		}
+
+		/**
+		 * Get the number of moves of a given type which were rejected.
+		 *
+		 * @param type The name of the move type (e.g. <code>MoveLeft</code>).
+		 * @return The number of moves.
+		 */
+		public long getRejected(String type) {
+			long[] counts = moves.get(type);
+			return counts == null ? 0 : counts[1];
+		}
+
+		/**
+		 * Get the total number of moves which were applied.
+		 *
+		 * @return The number of moves.
+		 */
+		public long getApplied() {
+			long n = 0;
+			for (long[] counts : moves.values()) {
+				n += counts[0];
+			}
+			return n;
+		}
+
+		/**
+		 * Get the total number of moves which were rejected.
+		 *
+		 * @return The number of moves.
+		 */
+		public long getRejected() {
+			long n = 0;
+			for (long[] counts : moves.values()) {
+				n += counts[1];
+			}
+			return n;
+		}
+
+		/**
+		 * Get the time taken by clock cycles.
+		 *
+		 * @return The distribution of times.
+		 */
+		public Histogram.Snapshot getClockTime() {
+			return clockTime;
+		}
+
+		/**
+		 * Get the time taken by moves.
+		 *
+		 * @return The distribution of times.
+		 */
+		public Histogram.Snapshot getApplyTime() {
+			return applyTime;
+		}
+
+		/**
+		 * Get the time taken by boards to remove full lines.
+		 *
+		 * @return The distribution of times.
+		 */
+		public Histogram.Snapshot getLineTime() {
+			return lineTime;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			sb.append("clocks=").append(clocks).append(" locks=").append(locks).append(" replaced=").append(replaced);
+			sb.append(" allocated=").append(allocated);
+			sb.append(" clears=");
+			for (int i = 0; i < clears.length; ++i) {
+				sb.append(i == 0 ? "" : "/").append(clears[i]);
+			}
+			for (Map.Entry<String, long[]> e : moves.entrySet()) {
+				sb.append(" ").append(e.getKey()).append("=").append(e.getValue()[0]).append("/")
+						.append(e.getValue()[1]);
+			}
+			sb.append(" clock(p50/p99)=").append(clockTime.getPercentile(50)).append("/")
+					.append(clockTime.getPercentile(99)).append("ns");
+			sb.append(" lines(p50/p99)=").append(lineTime.getPercentile(50)).append("/")
+					.append(lineTime.getPercentile(99)).append("ns");
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,265 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records a distribution of durations, such that percentiles can be reported.
+ * Durations are counted in buckets whose width grows with their magnitude, so
+ * each duration is recorded to within roughly 12% using a small, fixed amount
+ * of memory. Durations beyond about 18 minutes are counted in the last bucket.
+ * <p>
+ * Any number of threads can record durations without locking. The buckets are
+ * striped, such that threads usually update different stripes and do not
+ * contend with each other. Recording never allocates. Taking a snapshot sums
+ * the stripes, and is not atomic with respect to concurrent recording.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public final class Histogram {
+	/**
+	 * The number of bits of each duration which are kept, beyond its leading
+	 * bit.
+	 */
+	private static final int PRECISION = 3;
+
+	/**
+	 * The number of buckets for each power of two.
+	 */
+	private static final int SUB_BUCKETS = 1 << PRECISION;
+
+	/**
+	 * The magnitude of the largest duration which has its own bucket.
+	 */
+	private static final int MAX_MAGNITUDE = 40;
+
+	/**
+	 * The number of buckets in each stripe.
+	 */
+	private static final int BUCKETS = (MAX_MAGNITUDE - PRECISION + 2) * SUB_BUCKETS;
+
+	/**
+	 * The largest number of stripes used by any histogram.
+	 */
+	private static final int MAX_STRIPES = 16;
+
+	/**
+	 * The buckets of every stripe, where bucket <code>i</code> of stripe
+	 * <code>s</code> is held in element <code>s * BUCKETS + i</code>.
+	 */
+	private final AtomicLongArray counts;
+
+	/**
+	 * The mask used to choose a stripe for a thread.
+	 */
+	private final int mask;
+
+	/**
+	 * The sum of all durations recorded.
+	 */
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * The longest duration recorded.
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Construct an empty histogram, with one stripe for each processor (up to a
+	 * limit).
+	 */
+	public Histogram() {
+		int stripes = Integer.highestOneBit(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()));
+		this.mask = stripes - 1;
+		this.counts = new AtomicLongArray(stripes * BUCKETS);
+	}
+
+	/**
+	 * Record a duration.
+	 *
+	 * @param nanos The duration (in nanoseconds).
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		int stripe = (int) Thread.currentThread().getId() & mask;
+		counts.incrementAndGet((stripe * BUCKETS) + bucket(nanos));
+		sum.add(nanos);
+		long m = max.get();
+		while (nanos > m && !max.compareAndSet(m, nanos)) {
+			m = max.get();
+		}
+	}
+
+	/**
+	 * Get the sum of all durations recorded, which is cheaper than taking a
+	 * snapshot.
+	 *
+	 * @return The sum (in nanoseconds).
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+
+	/**
+	 * Remove all durations from this histogram. Durations recorded concurrently
+	 * may or may not be removed.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); ++i) {
+			counts.set(i, 0);
+		}
+		sum.reset();
+		max.set(0);
+	}
+
+	/**
+	 * Take a snapshot of the durations recorded so far.
+	 *
+	 * @return The snapshot.
+	 */
+	public Snapshot snapshot() {
+		long[] buckets = new long[BUCKETS];
+		for (int i = 0; i < counts.length(); ++i) {
+			buckets[i % BUCKETS] += counts.get(i);
+		}
+		return new Snapshot(buckets, sum.sum(), max.get());
+	}
+
+	/**
+	 * An immutable view of the durations recorded by a histogram at some point.
+	 */
+	public static final class Snapshot {
+		/**
+		 * The number of durations in each bucket.
+		 */
+		private final long[] buckets;
+
+		/**
+		 * The total number of durations.
+		 */
+		private final long count;
+
+		/**
+		 * The sum of all durations.
+		 */
+		private final long sum;
+
+		/**
+		 * The longest duration.
+		 */
+		private final long max;
+
+		/**
+		 * Construct a snapshot.
+		 *
+		 * @param buckets The number of durations in each bucket.
+		 * @param sum     The sum of all durations.
+		 * @param max     The longest duration.
+		 */
+		private Snapshot(long[] buckets, long sum, long max) {
+			long count = 0;
+			for (long n : buckets) {
+				count += n;
+			}
+			this.buckets = buckets;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		/**
+		 * Get the number of durations recorded.
+		 *
+		 * @return The number of durations.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Get the longest duration recorded.
+		 *
+		 * @return The duration (in nanoseconds).
+		 */
+		public long getMax() {
+			return max;
+		}
+
+		/**
+		 * Get the average duration recorded.
+		 *
+		 * @return The duration (in nanoseconds), or zero if none were recorded.
+		 */
+		public double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		/**
+		 * Get the duration below which a given percentage of durations fall.
+		 *
+		 * @param percentile The percentage, between 0 and 100.
+		 * @return The duration (in nanoseconds), which is rounded up to the top of
+		 *         its bucket, or zero if none were recorded.
+		 */
+		public long getPercentile(double percentile) {
+			if (percentile < 0 || percentile > 100) {
+				throw new IllegalArgumentException("Invalid percentile (" + percentile + ")");
+			}
+			long rank = Math.max(1, (long) Math.ceil((percentile / 100) * count));
+			long seen = 0;
+			for (int i = 0; i < buckets.length; ++i) {
+				seen += buckets[i];
+				if (seen >= rank) {
+					return Math.min(max, upperBound(i));
+				}
+			}
+			return max;
+		}
+	}
+
+	/**
+	 * Determine the bucket for a given duration. Durations below
+	 * <code>SUB_BUCKETS</code> have a bucket each, whilst larger durations are
+	 * bucketed by their leading bit and the <code>PRECISION</code> bits which
+	 * follow it.
+	 *
+	 * @param nanos The duration, which is not negative.
+	 * @return The index of its bucket.
+	 */
+	private static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(nanos);
+		if (magnitude > MAX_MAGNITUDE) {
+			return BUCKETS - 1;
+		}
+		int shift = magnitude - PRECISION;
+		return ((shift + 1) << PRECISION) + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Determine the largest duration which falls in a given bucket.
+	 *
+	 * @param bucket The index of the bucket.
+	 * @return The duration.
+	 */
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		} else if (bucket == BUCKETS - 1) {
+			return Long.MAX_VALUE;
+		}
+		int shift = (bucket >>> PRECISION) - 1;
+		long base = ((long) (SUB_BUCKETS | (bucket & (SUB_BUCKETS - 1)))) << shift;
+		return base + (1L << shift) - 1;
+	}
+}
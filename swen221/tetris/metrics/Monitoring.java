@@ -0,0 +1,394 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import swen221.tetris.logic.Game;
+
+/**
+ * Publishes statistics about running games as MBeans, such that they can be
+ * monitored with JMX tools. Each registered game is published under
+ * <code>swen221.tetris:type=Game,name=...</code>, whilst the statistics for
+ * all games are published under <code>swen221.tetris:type=Engine</code>.
+ * <p>
+ * All attributes are computed from the counters in <code>GameMetrics</code>,
+ * rather than by inspecting boards, so they can be polled frequently whilst
+ * games are running. Attributes are read without synchronising on the game,
+ * and so may be very slightly out of date.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public final class Monitoring {
+	/**
+	 * The domain under which all MBeans are registered.
+	 */
+	public static final String DOMAIN = "swen221.tetris";
+
+	/**
+	 * The names of the games currently registered.
+	 */
+	private static final Set<ObjectName> GAMES = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The name of the MBean for all games, or <code>null</code> if it is not yet
+	 * registered.
+	 */
+	private static ObjectName engine;
+
+	/**
+	 * Statistics which are derived from metrics.
+	 */
+	public interface MetricsMBean {
+		/**
+		 * Get the number of clock cycles.
+		 *
+		 * @return The number of clock cycles.
+		 */
+		public long getTicks();
+
+		/**
+		 * Get the number of clock cycles per second, measured over (at least) the
+		 * last second.
+		 *
+		 * @return The rate of clock cycles.
+		 */
+		public double getTickRate();
+
+		/**
+		 * Get the number of moves applied.
+		 *
+		 * @return The number of moves.
+		 */
+		public long getMovesApplied();
+
+		/**
+		 * Get the number of moves rejected, because they were invalid.
+		 *
+		 * @return The number of moves.
+		 */
+		public long getMovesRejected();
+
+		/**
+		 * Get the fraction of moves which were applied.
+		 *
+		 * @return The fraction, or one if there have been no moves.
+		 */
+		public double getMoveAcceptanceRatio();
+
+		/**
+		 * Get the average time taken by a clock cycle.
+		 *
+		 * @return The time (in nanoseconds).
+		 */
+		public double getAverageClockNanos();
+
+		/**
+		 * Get the time within which 99% of clock cycles completed.
+		 *
+		 * @return The time (in nanoseconds).
+		 */
+		public long getP99ClockNanos();
+
+		/**
+		 * Get the number of times a single line was removed.
+		 *
+		 * @return The number of times.
+		 */
+		public long getSingles();
+
+		/**
+		 * Get the number of times two lines were removed at once.
+		 *
+		 * @return The number of times.
+		 */
+		public long getDoubles();
+
+		/**
+		 * Get the number of times three lines were removed at once.
+		 *
+		 * @return The number of times.
+		 */
+		public long getTriples();
+
+		/**
+		 * Get the number of times four lines were removed at once.
+		 *
+		 * @return The number of times.
+		 */
+		public long getTetrises();
+	}
+
+	/**
+	 * Statistics for a single game.
+	 */
+	public interface GameMBean extends MetricsMBean {
+		/**
+		 * Get the number of lines removed in the current game.
+		 *
+		 * @return The number of lines.
+		 */
+		public int getLines();
+
+		/**
+		 * Get the score of the current game.
+		 *
+		 * @return The score.
+		 */
+		public int getScore();
+	}
+
+	/**
+	 * Statistics for all games.
+	 */
+	public interface EngineMBean extends MetricsMBean {
+		/**
+		 * Get the number of games currently registered.
+		 *
+		 * @return The number of games.
+		 */
+		public int getActiveGames();
+	}
+
+	/**
+	 * This class is not intended to be instantiated.
+	 */
+	private Monitoring() {
+	}
+
+	/**
+	 * Publish the statistics of a given game, which must be recording into some
+	 * metrics (see <code>Game.setMetrics()</code>). If the game records into
+	 * <code>GameMetrics.GLOBAL</code>, it is given its own metrics which also
+	 * record into <code>GLOBAL</code>, but only once it has been published. The
+	 * statistics for all games are published as well, if they are not already.
+	 *
+	 * @param game The game.
+	 * @param name The name under which to publish it, which must be unique.
+	 * @return The name of the MBean, which is needed to unregister it.
+	 */
+	public static ObjectName register(Game game, String name) {
+		GameMetrics metrics = game.getMetrics();
+		if (metrics == null) {
+			throw new IllegalArgumentException("Invalid game (records no metrics)");
+		} else if (metrics == GameMetrics.GLOBAL) {
+			metrics = new GameMetrics(GameMetrics.GLOBAL);
+		}
+		synchronized (Monitoring.class) {
+			if (engine == null) {
+				engine = register("Engine", null, new EngineView(), EngineMBean.class);
+			}
+		}
+		ObjectName result = register("Game", name, new GameView(game, metrics), GameMBean.class);
+		GAMES.add(result);
+		game.setMetrics(metrics);
+		return result;
+	}
+
+	/**
+	 * Publish an arbitrary MBean in this domain.
+	 *
+	 * @param type      The type of the MBean.
+	 * @param name      The name of the MBean, or <code>null</code> if there is
+	 *                  only one of its type.
+	 * @param bean      The MBean.
+	 * @param interfaze The interface which determines the attributes of the
+	 *                  MBean.
+	 * @param <T>       The type of the interface.
+	 * @return The name of the MBean.
+	 */
+	public static <T> ObjectName register(String type, String name, T bean, Class<T> interfaze) {
+		try {
+			ObjectName objectName = new ObjectName(
+					DOMAIN + ":type=" + type + (name == null ? "" : ",name=" + ObjectName.quote(name)));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(new StandardMBean(bean, interfaze), objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalArgumentException("Cannot register MBean (" + e.getMessage() + ")", e);
+		}
+	}
+
+	/**
+	 * Withdraw an MBean previously published using <code>register()</code>,
+	 * such as the statistics of a game.
+	 *
+	 * @param name The name of the MBean.
+	 */
+	public static void unregister(ObjectName name) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			GAMES.remove(name);
+		} catch (JMException e) {
+			throw new IllegalArgumentException("Cannot unregister MBean (" + e.getMessage() + ")", e);
+		}
+	}
+
+	/**
+	 * Get the number of games currently registered.
+	 *
+	 * @return The number of games.
+	 */
+	public static int getActiveGames() {
+		return GAMES.size();
+	}
+
+	/**
+	 * Computes statistics from a given set of metrics.
+	 */
+	private static class MetricsView implements MetricsMBean {
+		/**
+		 * The metrics from which statistics are computed.
+		 */
+		private final GameMetrics metrics;
+
+		/**
+		 * The time at which the tick rate was last measured.
+		 */
+		private long sampleTime = System.nanoTime();
+
+		/**
+		 * The number of clock cycles when the tick rate was last measured.
+		 */
+		private long sampleTicks;
+
+		/**
+		 * The tick rate last measured.
+		 */
+		private double tickRate;
+
+		/**
+		 * Construct a view of some metrics.
+		 *
+		 * @param metrics The metrics.
+		 */
+		public MetricsView(GameMetrics metrics) {
+			this.metrics = metrics;
+			this.sampleTicks = metrics.getClocks();
+		}
+
+		@Override
+		public long getTicks() {
+			return metrics.getClocks();
+		}
+
+		@Override
+		public synchronized double getTickRate() {
+			long now = System.nanoTime();
+			long elapsed = now - sampleTime;
+			if (elapsed >= 1000000000L) {
+				long ticks = metrics.getClocks();
+				tickRate = (ticks - sampleTicks) * 1e9 / elapsed;
+				sampleTicks = ticks;
+				sampleTime = now;
+			}
+			return tickRate;
+		}
+
+		@Override
+		public long getMovesApplied() {
+			return metrics.getMoves(true);
+		}
+
+		@Override
+		public long getMovesRejected() {
+			return metrics.getMoves(false);
+		}
+
+		@Override
+		public double getMoveAcceptanceRatio() {
+			long applied = metrics.getMoves(true);
+			long total = applied + metrics.getMoves(false);
+			return total == 0 ? 1 : (double) applied / total;
+		}
+
+		@Override
+		public double getAverageClockNanos() {
+			long ticks = metrics.getClocks();
+			return ticks == 0 ? 0 : (double) metrics.getClockTime().getSum() / ticks;
+		}
+
+		@Override
+		public long getP99ClockNanos() {
+			return metrics.getClockTime().snapshot().getPercentile(99);
+		}
+
+		@Override
+		public long getSingles() {
+			return metrics.getClears(1);
+		}
+
+		@Override
+		public long getDoubles() {
+			return metrics.getClears(2);
+		}
+
+		@Override
+		public long getTriples() {
+			return metrics.getClears(3);
+		}
+
+		@Override
+		public long getTetrises() {
+			return metrics.getClears(4);
+		}
+	}
+
+	/**
+	 * Computes statistics for a single game.
+	 */
+	private static final class GameView extends MetricsView implements GameMBean {
+		/**
+		 * The game.
+		 */
+		private final Game game;
+
+		/**
+		 * Construct a view of a game.
+		 *
+		 * @param game    The game.
+		 * @param metrics The metrics into which the game records.
+		 */
+		public GameView(Game game, GameMetrics metrics) {
+			super(metrics);
+			this.game = game;
+		}
+
+		@Override
+		public int getLines() {
+			return game.getLines();
+		}
+
+		@Override
+		public int getScore() {
+			return game.getScore();
+		}
+	}
+
+	/**
+	 * Computes statistics for all games.
+	 */
+	private static final class EngineView extends MetricsView implements EngineMBean {
+		/**
+		 * Construct a view of all games.
+		 */
+		public EngineView() {
+			super(GameMetrics.GLOBAL);
+		}
+
+		@Override
+		public int getActiveGames() {
+			return Monitoring.getActiveGames();
+		}
+	}
+}
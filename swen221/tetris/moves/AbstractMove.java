@@ -3,7 +3,7 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.moves;
 
-import swen221.tetris.logic.Board;
+import swen221.tetris.logic.BoardEngine;
 import swen221.tetris.logic.Rectangle;
 import swen221.tetris.tetromino.ActiveTetromino;
 import swen221.tetris.tetromino.Tetromino;
@@ -18,7 +18,7 @@ import swen221.tetris.tetromino.Tetromino;
 public abstract class AbstractMove implements Move {
 
 	@Override
-	public boolean isValid(Board board) {
+	public boolean isValid(BoardEngine board) {
 		// NOTE: to check whether move is valid or not, you can employ Move.apply() to
 		// compute the new board and then check whether the active tetromino is in a
 		// valid position.
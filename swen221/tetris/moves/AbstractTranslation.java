@@ -3,10 +3,8 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.moves;
 
-import swen221.tetris.logic.Board;
-import swen221.tetris.logic.Rectangle;
+import swen221.tetris.logic.BoardEngine;
 import swen221.tetris.tetromino.ActiveTetromino;
-import swen221.tetris.tetromino.Tetromino;
 
 /**
  * Implements a translation move.
@@ -40,9 +38,15 @@ public abstract class AbstractTranslation extends AbstractMove implements Move {
 	}
 
 	@Override
-	public Board apply(Board board) {
+	public boolean isValid(BoardEngine board) {
+		// Probe the translated position without copying the board
+		return super.isValid(board) && board.canMoveTetromino(dx, dy, 0);
+	}
+
+	@Override
+	public BoardEngine apply(BoardEngine board) {
 		// Create copy of the board to prevent modifying its previous state.
-		board = new Board(board);
+		board = board.copy();
 		// Apply translation for this move
 		ActiveTetromino tetromino = board.getActiveTetromino().translate(dx, dy);
 		// Apply the move to the new board.
@@ -51,4 +55,13 @@ public abstract class AbstractTranslation extends AbstractMove implements Move {
 		return board;
 	}
 
+	@Override
+	public boolean applyInPlace(BoardEngine board) {
+		if (!isValid(board)) {
+			return false;
+		}
+		board.setActiveTetromino(board.getActiveTetromino().translate(dx, dy));
+		return true;
+	}
+
 }
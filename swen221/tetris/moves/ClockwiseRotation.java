@@ -3,9 +3,8 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.moves;
 
-import swen221.tetris.logic.Board;
+import swen221.tetris.logic.BoardEngine;
 import swen221.tetris.tetromino.ActiveTetromino;
-import swen221.tetris.tetromino.Tetromino;
 
 /**
  * Implements a rotation move which is either clockwise or anti-clockwise.
@@ -17,9 +16,9 @@ import swen221.tetris.tetromino.Tetromino;
 public class ClockwiseRotation extends AbstractMove implements Move {
 
 	@Override
-	public Board apply(Board board) {
+	public BoardEngine apply(BoardEngine board) {
 		// Create copy of the board to prevent modifying its previous state.
-		board = new Board(board);
+		board = board.copy();
 
 		ActiveTetromino tetromino = board.getActiveTetromino();
 		// Create a copy of this board which will be updated.
@@ -34,31 +33,43 @@ public class ClockwiseRotation extends AbstractMove implements Move {
 	}
 
 	@Override
-	public boolean isValid(Board board) {
-		if(!super.isValid(board))
+	public boolean applyInPlace(BoardEngine board) {
+		if (!isValid(board)) {
 			return false;
-		// make a copy of the board, otherwise it will break the original rules
-		Board boardCopy = new Board(board);
-
-		ActiveTetromino tetromino = boardCopy.getActiveTetromino().rotate(1);
-
-		// Apply the move to the new board, rather than to this board.
-		boardCopy.setActiveTetromino(tetromino);
+		}
+		board.setActiveTetromino(board.getActiveTetromino().rotate(1));
+		return true;
+	}
 
-		// check if it is out side the broad
-		if(CheckOutside(tetromino,board))
+	@Override
+	public boolean isValid(BoardEngine board) {
+		if(!super.isValid(board))
 			return false;
-		return true;
+		// probe the rotated tetromino, which checks it is not beyond the left,
+		// right or bottom edges and does not overlap any placed tetromino
+		return board.canMoveTetromino(0, 0, 1);
 	}
-	public boolean CheckOutside(ActiveTetromino activeTetromino , Board board) {
+
+	/**
+	 * Check whether a tetromino extends beyond the left, right or bottom edges of
+	 * a board. A tetromino may extend beyond the top of the board.
+	 *
+	 * @param activeTetromino The tetromino being checked.
+	 * @param board           The board it is on.
+	 * @return True if the tetromino is outside the board, false otherwise.
+	 * @deprecated Use <code>BoardEngine.canMoveTetromino()</code>, which also
+	 *             checks for overlapping tetrominos without copying the board.
+	 */
+	@Deprecated
+	public boolean CheckOutside(ActiveTetromino activeTetromino , BoardEngine board) {
 		// if left edge is vaidld return true
-		if(activeTetromino.getBoundingBox().getMinX() < 0) return true;
+		if(activeTetromino.getMinX() < 0) return true;
 
 		// if right edge is vaidld return true
-		if(activeTetromino.getBoundingBox().getMaxX() >= board.getWidth()) return true;
+		if(activeTetromino.getMaxX() >= board.getWidth()) return true;
 
 		// if bottom edge is vaidld return true
-		if(activeTetromino.getBoundingBox().getMinY() < 0) return true;
+		if(activeTetromino.getMinY() < 0) return true;
 
 		return false;
 	}
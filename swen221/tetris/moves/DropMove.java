@@ -3,10 +3,8 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.moves;
 
-import swen221.tetris.logic.Board;
-import swen221.tetris.logic.Rectangle;
+import swen221.tetris.logic.BoardEngine;
 import swen221.tetris.tetromino.ActiveTetromino;
-import swen221.tetris.tetromino.Tetromino;
 
 /**
  * Implements a "hard drop". That is, when the tetromino is immediately dropped
@@ -18,27 +16,33 @@ import swen221.tetris.tetromino.Tetromino;
  */
 public class DropMove implements Move {
 	@Override
-	public boolean isValid(Board board) {
+	public boolean isValid(BoardEngine board) {
 		return true;
 	}
 
 	@Override
-	public Board apply(Board board) {
+	public BoardEngine apply(BoardEngine board) {
 		// get the tetromino
 		ActiveTetromino tetromino = board.getActiveTetromino();
-
-		/*if(!board.CheckLanded(tetromino)){
-			tetromino = board.getActiveTetromino().translate(0, -1);
-			board.setActiveTetromino(tetromino);
-		}*/
-		//drop untill it land
-		while(!board.CheckLanded(tetromino)){
-			tetromino = board.getActiveTetromino().translate(0, -1);
-			board.setActiveTetromino(tetromino);
+		if (tetromino == null) {
+			return board;
+		}
+		// drop straight to the row where it will land
+		int distance = board.getDropDistance(tetromino);
+		if (distance > 0) {
+			board.setActiveTetromino(tetromino.translate(0, -distance));
 		}
 		return board;
 	}
 
+	@Override
+	public boolean applyInPlace(BoardEngine board) {
+		// NOTE: dropping is always valid, though the board is unchanged if the
+		// tetromino has already landed
+		apply(board);
+		return true;
+	}
+
 	@Override
 	public String toString() {
 		return "drop";
@@ -3,7 +3,7 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.moves;
 
-import swen221.tetris.logic.Board;
+import swen221.tetris.logic.BoardEngine;
 
 /**
  * A move is any move which is permitted by the player during a game. This
@@ -22,7 +22,7 @@ public interface Move {
 	 * @param board Board on which Tetromino is being moved.
 	 * @return True if this move is valid for the given board, false otherwise.
 	 */
-	public boolean isValid(Board board);
+	public boolean isValid(BoardEngine board);
 
 	/**
 	 * Update the board to reflect the board after the move is played.
@@ -31,6 +31,29 @@ public interface Move {
 	 * @return A new board which represents the given board after this move has been
 	 *         applied.
 	 */
-	public Board apply(Board board);
+	public BoardEngine apply(BoardEngine board);
+
+	/**
+	 * Validate and apply this move in one step. Implementations should validate
+	 * the move by probing the board (e.g. using
+	 * <code>BoardEngine.canMoveTetromino()</code>) rather than by applying it to a copy.
+	 *
+	 * @param board Board on which Tetromino is being moved.
+	 * @return A new board which represents the given board after this move has been
+	 *         applied, or <code>null</code> if the move is not valid.
+	 */
+	public default BoardEngine tryApply(BoardEngine board) {
+		return isValid(board) ? apply(board) : null;
+	}
+
+	/**
+	 * Validate and apply this move directly to a given board, rather than to a
+	 * copy of it. This is used when simulating games, where the board is updated
+	 * in place and changes are later undone.
+	 *
+	 * @param board Board on which Tetromino is being moved.
+	 * @return True if the move was valid and has been applied, false otherwise.
+	 */
+	public boolean applyInPlace(BoardEngine board);
 
 }
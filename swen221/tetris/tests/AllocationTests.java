@@ -0,0 +1,227 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import swen221.tetris.logic.BoardEngine;
+import swen221.tetris.logic.Game;
+import swen221.tetris.moves.*;
+import swen221.tetris.tetromino.*;
+import swen221.tetris.tetromino.Tetromino.Color;
+import swen221.tetris.tetromino.Tetromino.Orientation;
+
+/**
+ * Tests which limit the memory allocated by each step of a game, once warmed
+ * up. Steps are played in mutable mode and undone, so the same step can be
+ * measured repeatedly. The budgets are in bytes per step and are checked for
+ * each implementation of the board. Since the size of an object depends upon
+ * the virtual machine (e.g. whether references are compressed), budgets are
+ * given as multiples of the size of an active tetromino, which is measured
+ * first. These tests do nothing on virtual machines which cannot measure the
+ * memory allocated by a thread.
+ *
+ * @author David J. Pearce
+ *
+ */
+public class AllocationTests {
+	/**
+	 * The number of times a step is performed before it is measured.
+	 */
+	private static final int WARMUP = 20000;
+	/**
+	 * The number of times a step is measured.
+	 */
+	private static final int COUNT = 20000;
+	/**
+	 * The size of an active tetromino, as allocated when it moves.
+	 */
+	private static final long ACTIVE = sizeOfActive();
+
+	/**
+	 * The implementations of the board being checked.
+	 */
+	private static final BoardEngine.Factory[] ENGINES = { BoardEngine.REFERENCE, BoardEngine.ARENA };
+
+	/**
+	 * Checking whether a move is valid does not allocate.
+	 */
+	@Test public void test_01() {
+		Move[] moves = { new MoveLeft(), new MoveRight(), new MoveDown(), new ClockwiseRotation(), new DropMove() };
+		for (BoardEngine.Factory engine : ENGINES) {
+			Game game = game(engine, new O_Tetromino(Color.RED));
+			game.clock();
+			BoardEngine board = game.getActiveEngine();
+			for (Move move : moves) {
+				assertBudget(0, () -> move.isValid(board));
+			}
+			assertBudget(0, () -> board.canMoveTetromino(1, -1, 1));
+			assertBudget(0, () -> board.CheckLanded(board.getActiveTetromino()));
+			assertBudget(0, () -> board.getDropDistance(board.getActiveTetromino()));
+		}
+	}
+
+	/**
+	 * Moving the active tetromino allocates no more than the moved tetromino.
+	 */
+	@Test public void test_02() {
+		Move[] moves = { new MoveLeft(), new MoveRight(), new MoveDown(), new ClockwiseRotation(), new DropMove() };
+		for (BoardEngine.Factory engine : ENGINES) {
+			Game game = game(engine, new T_Tetromino(Orientation.NORTH, Color.RED));
+			game.clock();
+			game.setMutable(true);
+			for (Move move : moves) {
+				assertBudget(ACTIVE, () -> {
+					int mark = game.mark();
+					game.apply(move);
+					game.undoTo(mark);
+				});
+			}
+			// Gravity
+			assertBudget(ACTIVE, () -> {
+				int mark = game.mark();
+				game.clock();
+				game.undoTo(mark);
+			});
+		}
+	}
+
+	/**
+	 * Locking a tetromino in place allocates a bounded amount.
+	 */
+	@Test public void test_03() {
+		for (BoardEngine.Factory engine : ENGINES) {
+			Game game = game(engine, new O_Tetromino(Color.RED));
+			game.clock();
+			game.apply(new DropMove());
+			game.setMutable(true);
+			assertBudget(2 * ACTIVE, () -> {
+				int mark = game.mark();
+				game.clock();
+				game.undoTo(mark);
+			});
+		}
+	}
+
+	/**
+	 * Removing lines allocates a bounded amount.
+	 */
+	@Test public void test_04() {
+		long[] budgets = { 4 * ACTIVE, 20 * ACTIVE };
+		for (int i = 0; i != ENGINES.length; ++i) {
+			Game game = game(ENGINES[i], new I_Tetromino(Orientation.NORTH, Color.RED));
+			game.clock();
+			game.apply(new ClockwiseRotation());
+			game.apply(new MoveRight());
+			game.apply(new MoveRight());
+			game.apply(new DropMove());
+			BoardEngine board = game.getActiveEngine();
+			for (int y = 0; y < 4; ++y) {
+				for (int x = 0; x < 4; ++x) {
+					board.setPlacedTetrominoAt(x, y, new O_Tetromino(Color.GREEN));
+				}
+			}
+			game.setMutable(true);
+			assertBudget(budgets[i], () -> {
+				int mark = game.mark();
+				game.clock();
+				assertEquals(0, game.getActiveView().getStackHeight());
+				game.undoTo(mark);
+			});
+		}
+	}
+
+	/**
+	 * Moves which produce a new board allocate a bounded amount.
+	 */
+	@Test public void test_05() {
+		long[] budgets = { 4 * ACTIVE, 8 * ACTIVE };
+		Move left = new MoveLeft();
+		Move right = new MoveRight();
+		for (int i = 0; i != ENGINES.length; ++i) {
+			Game game = game(ENGINES[i], new T_Tetromino(Orientation.NORTH, Color.RED));
+			game.clock();
+			assertBudget(2 * budgets[i], () -> {
+				game.apply(left);
+				game.apply(right);
+			});
+		}
+	}
+
+	/**
+	 * Construct a game on a 5x6 board, which issues the same tetromino
+	 * repeatedly.
+	 *
+	 * @param engine    Constructs the boards of the game.
+	 * @param tetromino The tetromino to issue.
+	 * @return The game.
+	 */
+	private static Game game(BoardEngine.Factory engine, Tetromino tetromino) {
+		Tetromino[] tetrominos = { tetromino, tetromino, tetromino };
+		return new Game(Arrays.asList(tetrominos).iterator(), 5, 6, engine);
+	}
+
+	/**
+	 * Check that a given step allocates no more than a given number of bytes on
+	 * average, once it has been warmed up.
+	 *
+	 * @param budget The number of bytes allowed per step.
+	 * @param step   The step to measure.
+	 */
+	private static void assertBudget(long budget, Runnable step) {
+		for (int i = 0; i < WARMUP; ++i) {
+			step.run();
+		}
+		long before = allocatedBytes();
+		for (int i = 0; i < COUNT; ++i) {
+			step.run();
+		}
+		long after = allocatedBytes();
+		if (before >= 0) {
+			// Allow for less than one byte per step, as the measurement itself may
+			// allocate
+			long bytes = after - before;
+			assertTrue(bytes < (budget + 1) * COUNT,
+					"allocated " + ((double) bytes / COUNT) + " bytes per step, budget is " + budget);
+		}
+	}
+
+	/**
+	 * Measure the size of an active tetromino, by allocating many of them.
+	 *
+	 * @return The number of bytes per tetromino, or zero if this cannot be
+	 *         measured.
+	 */
+	private static long sizeOfActive() {
+		Tetromino tetromino = new T_Tetromino(Orientation.NORTH, Color.RED);
+		// NOTE: storing each tetromino ensures it is actually allocated
+		ActiveTetromino[] sink = new ActiveTetromino[64];
+		long before = allocatedBytes();
+		for (int i = 0; i < COUNT; ++i) {
+			sink[i % sink.length] = new ActiveTetromino(i, 0, tetromino);
+		}
+		long after = allocatedBytes();
+		return before < 0 ? 0 : (after - before) / COUNT;
+	}
+
+	/**
+	 * Get the number of bytes allocated so far by the current thread.
+	 *
+	 * @return The number of bytes, or -1 if this cannot be measured.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+			if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+				return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,177 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import swen221.tetris.logic.ArenaBoard;
+import swen221.tetris.logic.Board;
+import swen221.tetris.logic.BoardArena;
+import swen221.tetris.logic.BoardEngine;
+import swen221.tetris.logic.BoardView;
+import swen221.tetris.logic.Game;
+import swen221.tetris.moves.*;
+import swen221.tetris.tetromino.*;
+import swen221.tetris.tetromino.Tetromino.Color;
+import swen221.tetris.tetromino.Tetromino.Orientation;
+
+/**
+ * Tests for boards allocated off-heap from an arena.
+ *
+ * @author David J. Pearce
+ *
+ */
+public class ArenaTests {
+	/**
+	 * Place tetrominos and remove a line.
+	 */
+	@Test public void test_01() {
+		BoardArena arena = new BoardArena(5, 5, 4);
+		ArenaBoard board = arena.allocate();
+		board.placeTetromino(new ActiveTetromino(1, 0, new I_Tetromino(Orientation.NORTH, Color.YELLOW)));
+		board.placeTetromino(new ActiveTetromino(4, 2, new I_Tetromino(Orientation.EAST, Color.BLUE)));
+		assertArrayEquals(new int[] { 0 }, board.LineProcess());
+		String expected=
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|B|\n" +
+			"|_|_|_|_|B|\n" +
+			"|_|_|_|_|B|\n";
+		assertEquals(expected, board.toString());
+		assertEquals(3, board.getStackHeight());
+	}
+
+	/**
+	 * Copies are independent, and released slots are reused.
+	 */
+	@Test public void test_02() {
+		BoardArena arena = new BoardArena(5, 5, 2);
+		ArenaBoard board = arena.allocate();
+		board.setActiveTetromino(new ActiveTetromino(2, 3, new T_Tetromino(Orientation.NORTH, Color.RED)));
+		ArenaBoard copy = board.copy();
+		board.placeTetromino(board.getActiveTetromino());
+		board.setActiveTetromino(null);
+		assertNull(copy.getPlacedTetrominoAt(2, 3));
+		assertEquals(Color.RED, copy.getTetrominoAt(2, 3).getColor());
+		assertEquals(Color.RED, board.getPlacedTetrominoAt(2, 3).getColor());
+		assertEquals(2, arena.size());
+		copy.release();
+		ArenaBoard fresh = arena.allocate();
+		assertNull(fresh.getActiveTetromino());
+		assertEquals(0, fresh.getStackHeight());
+	}
+
+	/**
+	 * Rows wider than a short can count are removed, and the hash is kept equal
+	 * to that of a <code>Board</code> as rows are removed and reinstated.
+	 */
+	@Test public void test_03() {
+		int width = 40000;
+		BoardArena arena = new BoardArena(width, 3, 1);
+		ArenaBoard board = arena.allocate();
+		Board reference = new Board(width, 3);
+		Tetromino red = new O_Tetromino(Color.RED);
+		for (int x = 0; x < width; ++x) {
+			board.setPlacedTetrominoAt(x, 1, red);
+			reference.setPlacedTetrominoAt(x, 1, red);
+		}
+		board.setPlacedTetrominoAt(7, 2, red);
+		reference.setPlacedTetrominoAt(7, 2, red);
+		assertEquals(reference.getHash(), board.getHash());
+		board.setUndoable(true);
+		int mark = board.mark();
+		assertArrayEquals(new int[] { 1 }, board.LineProcess());
+		assertArrayEquals(new int[] { 1 }, reference.LineProcess());
+		assertEquals(Color.RED, board.getPlacedTetrominoAt(7, 1).getColor());
+		assertEquals(2, board.getStackHeight());
+		assertEquals(reference.getHash(), board.getHash());
+		board.undoTo(mark);
+		assertEquals(3, board.getStackHeight());
+		assertNotEquals(reference.getHash(), board.getHash());
+		assertEquals(Color.RED, board.getPlacedTetrominoAt(width - 1, 1).getColor());
+		board.setPlacedTetrominoAt(7, 2, null);
+		reference = new Board(width, 3);
+		for (int x = 0; x < width; ++x) {
+			reference.setPlacedTetrominoAt(x, 1, red);
+		}
+		assertEquals(reference.getHash(), board.getHash());
+	}
+
+	/**
+	 * An arena without a capacity grows as boards are allocated.
+	 */
+	@Test public void test_04() {
+		BoardArena arena = new BoardArena(5, 5);
+		ArenaBoard board = arena.allocate();
+		board.placeTetromino(new ActiveTetromino(1, 0, new O_Tetromino(Color.RED)));
+		ArenaBoard[] copies = new ArenaBoard[5000];
+		for (int i = 0; i < copies.length; ++i) {
+			copies[i] = board.copy();
+		}
+		assertEquals(copies.length + 1, arena.size());
+		assertEquals(Color.RED, copies[copies.length - 1].getPlacedTetrominoAt(2, 1).getColor());
+		for (ArenaBoard copy : copies) {
+			copy.release();
+		}
+		assertEquals(1, arena.size());
+		assertSame(BoardArena.shared(5, 5), BoardArena.shared(5, 5));
+	}
+
+	/**
+	 * A board handed out by a game remains usable after the game replaces it.
+	 */
+	@Test public void test_05() {
+		Tetromino[] tetrominos = {new O_Tetromino(Color.RED), new O_Tetromino(Color.BLUE)};
+		Game game = new Game(Arrays.asList(tetrominos).iterator(), 5, 5, BoardEngine.ARENA);
+		game.clock();
+		BoardEngine before = game.getActiveEngine();
+		String expected = before.toString();
+		assertTrue(game.apply(new MoveLeft()));
+		assertTrue(game.apply(new MoveLeft()));
+		assertEquals(expected, before.toString());
+		assertNotEquals(expected, game.getActiveBoard().toString());
+		assertEquals(game.getActiveEngine().toString(), game.getActiveBoard().toString());
+	}
+
+	/**
+	 * Reading a game's board through its view does not stop the game from
+	 * releasing the board once it is replaced.
+	 */
+	@Test public void test_06() {
+		BoardArena arena = new BoardArena(5, 5, 2);
+		Tetromino[] tetrominos = {new O_Tetromino(Color.RED), new O_Tetromino(Color.BLUE)};
+		Game game = new Game(Arrays.asList(tetrominos).iterator(), 5, 5, arena);
+		game.clock();
+		for (int i = 0; i < 100; ++i) {
+			BoardView view = game.getActiveView();
+			assertNotNull(view.getActiveTetromino());
+			assertTrue(game.apply(i % 2 == 0 ? new MoveLeft() : new MoveRight()));
+			assertEquals(1, arena.size());
+		}
+	}
+
+	/**
+	 * The bulk accessors agree with those of the reference board, including
+	 * for an active tetromino which extends beyond the top of the board.
+	 */
+	@Test public void test_07() {
+		BoardArena arena = new BoardArena(5, 5, 1);
+		ArenaBoard board = arena.allocate();
+		Board reference = new Board(5, 5);
+		for (BoardEngine b : new BoardEngine[] { board, reference }) {
+			b.placeTetromino(new ActiveTetromino(1, 0, new L_Tetromino(Orientation.NORTH, Color.GREEN)));
+			b.placeTetromino(new ActiveTetromino(3, 0, new O_Tetromino(Color.BLUE)));
+			b.setActiveTetromino(new ActiveTetromino(2, 4, new I_Tetromino(Orientation.EAST, Color.RED)));
+		}
+		assertArrayEquals(reference.copyCells(new byte[25]), board.copyCells(new byte[25]));
+		StringBuilder expected = new StringBuilder();
+		StringBuilder actual = new StringBuilder();
+		reference.forEachOccupied((x, y, c) -> expected.append(x).append(',').append(y).append(c).append(' '));
+		board.forEachOccupied((x, y, c) -> actual.append(x).append(',').append(y).append(c).append(' '));
+		assertEquals(expected.toString(), actual.toString());
+	}
+}
@@ -0,0 +1,277 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import swen221.tetris.logic.Board;
+import swen221.tetris.logic.BoardEngine;
+import swen221.tetris.logic.Game;
+import swen221.tetris.logic.Rectangle;
+import swen221.tetris.moves.*;
+import swen221.tetris.tetromino.*;
+import swen221.tetris.tetromino.Tetromino;
+import swen221.tetris.tetromino.Tetromino.Color;
+import swen221.tetris.tetromino.Tetromino.Orientation;
+
+/**
+ * Tests for the reference board beyond playing games, covering equality and
+ * hashing, wide and tall boards, removing rows, inserting garbage rows, the
+ * bulk accessors and moving the active tetromino beyond the top edge.
+ *
+ * @author David J. Pearce
+ *
+ */
+public class BoardTests {
+	/**
+	 * A tetromino which is a single row, 32 columns wide.
+	 */
+	private static class Bar implements Tetromino {
+		@Override
+		public Color getColor() {
+			return Color.RED;
+		}
+
+		@Override
+		public Orientation getOrientation() {
+			return Orientation.NORTH;
+		}
+
+		@Override
+		public boolean isWithin(int x, int y) {
+			return y == 0 && x >= 0 && x < 32;
+		}
+
+		@Override
+		public Rectangle getBoundingBox() {
+			return new Rectangle(0, 0, 31, 0);
+		}
+
+		@Override
+		public Tetromino rotate(int steps) {
+			return this;
+		}
+
+		@Override
+		public String getName() {
+			return "Bar";
+		}
+	}
+
+	/**
+	 * Boards reached by different routes are equal.
+	 */
+	@Test public void test_01() {
+		Tetromino[] tetrominos = {new I_Tetromino(Orientation.NORTH, Color.YELLOW), new O_Tetromino(Color.BLUE)};
+		Game g1 = new Game(Arrays.asList(tetrominos).iterator(),5,5,BoardEngine.REFERENCE);
+		Game g2 = new Game(Arrays.asList(tetrominos).iterator(),5,5,BoardEngine.REFERENCE);
+		g1.clock();
+		g2.clock();
+		g1.apply(new MoveLeft());
+		g1.apply(new DropMove());
+		g2.apply(new DropMove());
+		g2.apply(new MoveLeft());
+		Board b1 = g1.getActiveBoard();
+		Board b2 = g2.getActiveBoard();
+		assertEquals(b1, b2);
+		assertEquals(b1.getHash(), b2.getHash());
+		assertEquals(b1.hashCode(), b2.hashCode());
+	}
+
+	/**
+	 * Boards which differ only in their active tetromino are not equal.
+	 */
+	@Test public void test_02() {
+		Tetromino[] tetrominos = {new I_Tetromino(Orientation.NORTH, Color.YELLOW), new O_Tetromino(Color.BLUE)};
+		Game game = new Game(Arrays.asList(tetrominos).iterator(),5,5,BoardEngine.REFERENCE);
+		game.clock();
+		Board before = game.getActiveBoard();
+		game.apply(new MoveLeft());
+		assertNotEquals(before, game.getActiveBoard());
+		assertNotEquals(before.getHash(), game.getActiveBoard().getHash());
+		game.apply(new MoveRight());
+		assertEquals(before, game.getActiveBoard());
+	}
+
+	/**
+	 * Garbage rows inserted at the bottom push the stack up.
+	 */
+	@Test public void test_03() {
+		Board board = new Board(Arrays.<Tetromino>asList().iterator(),5,5);
+		board.placeTetromino(new ActiveTetromino(1, 0, new O_Tetromino(Color.RED)));
+		assertEquals(true, board.insertRows(2, 3, new O_Tetromino(Color.GREEN)));
+		String expected=
+			"|_|_|_|_|_|\n" +
+			"|_|R|R|_|_|\n" +
+			"|_|R|R|_|_|\n" +
+			"|G|G|G|_|G|\n" +
+			"|G|G|G|_|G|\n";
+		assertEquals(expected, board.toString());
+		assertEquals(4, board.getStackHeight());
+		assertEquals(0, board.getColumnHeight(3));
+		assertEquals(false, board.insertRows(2, 0, new O_Tetromino(Color.GREEN)));
+	}
+
+	/**
+	 * Bulk accessors agree with the cell-by-cell view of the board.
+	 */
+	@Test public void test_04() {
+		Tetromino[] tetrominos = {new L_Tetromino(Orientation.NORTH, Color.GREEN), new O_Tetromino(Color.BLUE), new O_Tetromino(Color.RED)};
+		Game game = new Game(Arrays.asList(tetrominos).iterator(),5,5,BoardEngine.REFERENCE);
+		game.clock();
+		game.apply(new DropMove());
+		game.clock();
+		game.clock();
+		Board board = game.getActiveBoard();
+		assertEquals(0b01110L, board.getRowMask(0));
+		assertEquals(0b01000L, board.getRowMask(1));
+		assertArrayEquals(new int[] { 0, 1, 1, 2, 0 }, board.getColumnHeights(new int[5]));
+		byte[] cells = board.copyCells(new byte[25]);
+		int[] count = new int[1];
+		board.forEachOccupied((x, y, c) -> {
+			assertEquals(c, board.getTetrominoAt(x, y).getColor());
+			count[0]++;
+		});
+		for (int y = 0; y < 5; ++y) {
+			for (int x = 0; x < 5; ++x) {
+				Tetromino t = board.getTetrominoAt(x, y);
+				assertEquals(t == null ? 0 : t.getColor().ordinal() + 1, cells[(y * 5) + x]);
+			}
+		}
+		assertEquals(8, count[0]);
+	}
+
+	/**
+	 * Rows wider than 64 columns span several words, and tetrominos which
+	 * straddle the boundary between two words are checked against both.
+	 */
+	@Test public void test_05() {
+		Board board = new Board(130, 4);
+		Tetromino o = new O_Tetromino(Color.RED);
+		// Occupy the first two columns of the second and third words
+		board.placeTetromino(new ActiveTetromino(64, 0, o));
+		board.placeTetromino(new ActiveTetromino(128, 0, o));
+		assertEquals(0L, board.getRowMask(0, 0));
+		assertEquals(0b11L, board.getRowMask(0, 1));
+		assertEquals(0b11L, board.getRowMask(1, 2));
+		// These straddle a word boundary, and overlap placed cells only in the
+		// higher word
+		assertFalse(board.canPlaceTetromino(new ActiveTetromino(63, 0, o)));
+		assertFalse(board.canPlaceTetromino(new ActiveTetromino(127, 1, o)));
+		assertTrue(board.canPlaceTetromino(new ActiveTetromino(62, 0, o)));
+		assertTrue(board.canPlaceTetromino(new ActiveTetromino(126, 0, o)));
+		// Fill the rest of the bottom two rows, which are then removed
+		for (int x = 0; x < 128; x += 2) {
+			if (x != 64) {
+				board.placeTetromino(new ActiveTetromino(x, 0, o));
+			}
+		}
+		board.placeTetromino(new ActiveTetromino(63, 2, o));
+		assertEquals(-1L, board.getRowMask(1, 0));
+		assertEquals(0b11L, board.getRowMask(1, 2));
+		assertArrayEquals(new int[] { 0, 1 }, board.LineProcess());
+		assertEquals(1L << 63, board.getRowMask(0, 0));
+		assertEquals(1L, board.getRowMask(1, 1));
+		assertEquals(2, board.getStackHeight());
+		assertEquals(0, board.getColumnHeight(129));
+		assertEquals(2, board.getColumnHeight(64));
+	}
+
+	/**
+	 * The row table of a tall board grows as higher rows are used, and copies
+	 * made before it grows are unaffected.
+	 */
+	@Test public void test_06() {
+		Board board = new Board(10, 100000);
+		Tetromino o = new O_Tetromino(Color.RED);
+		board.placeTetromino(new ActiveTetromino(0, 30, o));
+		Board copy = board.copy();
+		board.placeTetromino(new ActiveTetromino(2, 99998, o));
+		assertEquals(100000, board.getStackHeight());
+		assertEquals(Color.RED, board.getPlacedTetrominoAt(3, 99999).getColor());
+		assertNull(board.getPlacedTetrominoAt(3, 50000));
+		assertEquals(32, copy.getStackHeight());
+		assertNull(copy.getPlacedTetrominoAt(3, 99999));
+		assertNotEquals(copy.getHash(), board.getHash());
+		// Fill the top two rows, which are then removed
+		for (int x = 4; x < 10; x += 2) {
+			board.placeTetromino(new ActiveTetromino(x, 99998, o));
+		}
+		board.placeTetromino(new ActiveTetromino(0, 99998, o));
+		assertArrayEquals(new int[] { 99998, 99999 }, board.LineProcess());
+		assertEquals(32, board.getStackHeight());
+		assertEquals(copy, board);
+		assertEquals(copy.getHash(), board.getHash());
+	}
+
+	/**
+	 * Full rows which are not adjacent are removed together, and the rows
+	 * between and above them move down by the number of rows removed below
+	 * them.
+	 */
+	@Test public void test_07() {
+		Board board = new Board(5, 5);
+		Tetromino red = new O_Tetromino(Color.RED);
+		Tetromino blue = new O_Tetromino(Color.BLUE);
+		for (int x = 0; x < 5; ++x) {
+			board.setPlacedTetrominoAt(x, 0, red);
+			board.setPlacedTetrominoAt(x, 2, red);
+		}
+		board.setPlacedTetrominoAt(1, 1, blue);
+		board.setPlacedTetrominoAt(3, 1, blue);
+		board.setPlacedTetrominoAt(4, 3, blue);
+		assertArrayEquals(new int[] { 0, 2 }, board.clearLines(0, 3));
+		String expected=
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|B|\n" +
+			"|_|B|_|B|_|\n";
+		assertEquals(expected, board.toString());
+		assertEquals(2, board.getStackHeight());
+		assertArrayEquals(new int[] { 0, 1, 0, 1, 2 }, board.getColumnHeights(new int[5]));
+	}
+
+	/**
+	 * The active tetromino can be rotated so that it extends beyond the top of
+	 * the board, though not beyond the other edges.
+	 */
+	@Test public void test_08() {
+		Tetromino[] tetrominos = {new I_Tetromino(Orientation.NORTH, Color.YELLOW), new O_Tetromino(Color.BLUE)};
+		Game game = new Game(Arrays.asList(tetrominos).iterator(),5,5);
+		game.clock();
+		int above = 0;
+		for (int i = 0; i < 4; ++i) {
+			assertTrue(game.apply(new ClockwiseRotation()));
+			ActiveTetromino t = game.getActiveBoard().getActiveTetromino();
+			above = Math.max(above, t.getMaxY() - 4);
+			assertTrue(t.getMinX() >= 0 && t.getMaxX() < 5 && t.getMinY() >= 0);
+		}
+		assertEquals(1, above);
+		assertEquals(Orientation.NORTH, game.getActiveBoard().getActiveTetromino().getOrientation());
+		// Stand it against the left edge, where it cannot be rotated
+		game.apply(new ClockwiseRotation());
+		assertTrue(game.apply(new MoveLeft()));
+		assertTrue(game.apply(new MoveLeft()));
+		assertFalse(game.apply(new ClockwiseRotation()));
+	}
+
+	/**
+	 * A tetromino 32 columns wide occupies only its own columns, rather than also
+	 * the 32 columns to its right.
+	 */
+	@Test public void test_09() {
+		Board board = new Board(70, 4);
+		Tetromino bar = new Bar();
+		assertTrue(board.canPlaceTetromino(new ActiveTetromino(0, 0, bar)));
+		board.placeTetromino(new ActiveTetromino(0, 0, bar));
+		assertEquals(0xFFFFFFFFL, board.getRowMask(0));
+		assertEquals(0, board.getColumnHeight(32));
+		assertTrue(board.canPlaceTetromino(new ActiveTetromino(32, 0, bar)));
+		assertFalse(board.canPlaceTetromino(new ActiveTetromino(31, 0, bar)));
+	}
+}
@@ -0,0 +1,100 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import swen221.tetris.fuzz.DifferentialFuzzer;
+import swen221.tetris.fuzz.NaiveBoard;
+import swen221.tetris.logic.Board;
+import swen221.tetris.logic.BoardArena;
+import swen221.tetris.logic.BoardEngine;
+
+/**
+ * Tests which play random games against the naive board.
+ *
+ * @author David J. Pearce
+ *
+ */
+public class FuzzTests {
+	/**
+	 * A board which never removes full rows.
+	 */
+	private static class BrokenBoard extends Board {
+		public BrokenBoard(int width, int height) {
+			super(width, height);
+		}
+
+		public BrokenBoard(BrokenBoard other) {
+			super(other);
+		}
+
+		@Override
+		public BrokenBoard copy() {
+			return new BrokenBoard(this);
+		}
+
+		@Override
+		public int[] clearLines(int minY, int maxY) {
+			return new int[0];
+		}
+	}
+
+	/**
+	 * The off-heap board agrees with the naive board.
+	 */
+	@Test public void test_01() {
+		DifferentialFuzzer fuzzer = new DifferentialFuzzer(NaiveBoard::new, BoardEngine.ARENA, 6, 10, false);
+		for (long seed = 0; seed < 20; ++seed) {
+			assertNull(fuzzer.run(seed, 2000));
+		}
+	}
+
+	/**
+	 * The off-heap board agrees with the naive board in mutable mode.
+	 */
+	@Test public void test_02() {
+		DifferentialFuzzer fuzzer = new DifferentialFuzzer(NaiveBoard::new, BoardEngine.ARENA, 6, 10, true);
+		for (long seed = 0; seed < 20; ++seed) {
+			assertNull(fuzzer.run(seed, 2000));
+		}
+	}
+
+	/**
+	 * A broken board is caught, and the failing trace is shrunk.
+	 */
+	@Test public void test_03() {
+		DifferentialFuzzer fuzzer = new DifferentialFuzzer(NaiveBoard::new, BrokenBoard::new, 6, 10, false);
+		DifferentialFuzzer.Failure failure = fuzzer.run(1, 2000);
+		assertNotNull(failure);
+		assertTrue(fuzzer.check(1, failure.trace) == failure.trace.length - 1);
+		assertTrue(failure.trace.length < 200);
+	}
+
+	/**
+	 * The reference board agrees with the naive board, in both modes.
+	 */
+	@Test public void test_04() {
+		for (boolean mutable : new boolean[] { false, true }) {
+			DifferentialFuzzer fuzzer = new DifferentialFuzzer(NaiveBoard::new, BoardEngine.REFERENCE, 6, 10, mutable);
+			for (long seed = 0; seed < 20; ++seed) {
+				assertNull(fuzzer.run(seed, 2000));
+			}
+		}
+	}
+
+	/**
+	 * Boards replaced by an off-heap game are released and their slots reused,
+	 * since an arena holding only two boards is never exhausted.
+	 */
+	@Test public void test_05() {
+		BoardArena arena = new BoardArena(6, 10, 2);
+		DifferentialFuzzer fuzzer = new DifferentialFuzzer(NaiveBoard::new, arena, 6, 10, false);
+		for (long seed = 0; seed < 20; ++seed) {
+			assertNull(fuzzer.run(seed, 2000));
+			assertEquals(0, arena.size());
+		}
+	}
+}
@@ -0,0 +1,226 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+import swen221.tetris.logic.Board;
+import swen221.tetris.logic.BoardArena;
+import swen221.tetris.logic.Game;
+import swen221.tetris.metrics.GameMetrics;
+import swen221.tetris.metrics.Histogram;
+import swen221.tetris.metrics.Monitoring;
+import swen221.tetris.moves.*;
+import swen221.tetris.tetromino.*;
+import swen221.tetris.tetromino.Tetromino;
+import swen221.tetris.tetromino.Tetromino.Color;
+import swen221.tetris.tetromino.Tetromino.Orientation;
+
+/**
+ * Tests for the lines, score and metrics recorded by a game.
+ *
+ * @author David J. Pearce
+ *
+ */
+public class MetricsTests {
+	/**
+	 * Removing a line updates the lines and score, and everything is recorded.
+	 */
+	@Test public void test_01() {
+		GameMetrics metrics = new GameMetrics();
+		Game game = game();
+		game.setMetrics(metrics);
+		play(game);
+		assertEquals(1, game.getLines());
+		assertEquals(40, game.getScore());
+		GameMetrics.Snapshot snapshot = metrics.snapshot();
+		assertEquals(4, snapshot.getClocks());
+		assertEquals(2, snapshot.getLocks());
+		assertEquals(1, snapshot.getClears(1));
+		assertEquals(0, snapshot.getClears(4));
+		assertEquals(1, snapshot.getApplied("MoveLeft"));
+		assertEquals(2, snapshot.getApplied("MoveRight"));
+		assertEquals(1, snapshot.getRejected("MoveRight"));
+		assertEquals(2, snapshot.getApplied("DropMove"));
+		assertEquals(7, snapshot.getApplied() + snapshot.getRejected());
+		assertEquals(4, snapshot.getClockTime().getCount());
+		assertEquals(7, snapshot.getApplyTime().getCount());
+	}
+
+	/**
+	 * Undoing the removal of a line restores the lines and score.
+	 */
+	@Test public void test_02() {
+		Game game = game();
+		game.setMutable(true);
+		int mark = game.mark();
+		play(game);
+		assertEquals(1, game.getLines());
+		game.undo();
+		assertEquals(0, game.getLines());
+		assertEquals(0, game.getScore());
+		game.clock();
+		assertEquals(40, game.getScore());
+		game.undoTo(mark);
+		assertEquals(0, game.getLines());
+		assertEquals(0, game.getScore());
+	}
+
+	/**
+	 * Percentiles are reported to within the precision of the histogram.
+	 */
+	@Test public void test_03() {
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 1000; ++i) {
+			histogram.record(i * 1000);
+		}
+		Histogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(1000000, snapshot.getMax());
+		long median = snapshot.getPercentile(50);
+		assertTrue(median >= 500000 && median <= 500000 * 1.125);
+		assertEquals(1000000, snapshot.getPercentile(100));
+		assertEquals(500500, (long) snapshot.getMean());
+	}
+
+	/**
+	 * The statistics of a registered game are published as MBean attributes.
+	 */
+	@Test public void test_04() throws Exception {
+		Game game = game();
+		game.setMetrics(GameMetrics.GLOBAL);
+		ObjectName name = Monitoring.register(game, "test_04");
+		assertNotSame(GameMetrics.GLOBAL, game.getMetrics());
+		int active = Monitoring.getActiveGames();
+		play(game);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertEquals(4L, server.getAttribute(name, "Ticks"));
+		assertEquals(1L, server.getAttribute(name, "Singles"));
+		assertEquals(40, server.getAttribute(name, "Score"));
+		assertEquals(6.0 / 7, server.getAttribute(name, "MoveAcceptanceRatio"));
+		ObjectName engine = new ObjectName(Monitoring.DOMAIN + ":type=Engine");
+		assertEquals(active, server.getAttribute(engine, "ActiveGames"));
+		Monitoring.unregister(name);
+		assertEquals(active - 1, Monitoring.getActiveGames());
+		assertFalse(server.isRegistered(name));
+	}
+
+	/**
+	 * Nothing is recorded by default, and only boards which replace the current
+	 * board are counted.
+	 */
+	@Test public void test_05() {
+		Game game = game();
+		assertNull(game.getMetrics());
+		GameMetrics metrics = new GameMetrics();
+		game.setMetrics(metrics);
+		play(game);
+		// NOTE: dropping updates the current board, rather than replacing it
+		assertEquals(4, metrics.snapshot().getBoardsReplaced());
+		game.reset();
+		assertEquals(5, metrics.snapshot().getBoardsReplaced());
+		// In mutable mode, every move updates the current board
+		metrics = new GameMetrics();
+		game = game();
+		game.setMetrics(metrics);
+		game.setMutable(true);
+		play(game);
+		assertEquals(0, metrics.snapshot().getBoardsReplaced());
+	}
+
+	/**
+	 * Only games are counted as active, and a game which cannot be registered
+	 * keeps its metrics.
+	 */
+	@Test public void test_06() throws Exception {
+		Game game = game();
+		assertThrows(IllegalArgumentException.class, () -> Monitoring.register(game, "test_06"));
+		game.setMetrics(GameMetrics.GLOBAL);
+		ObjectName name = Monitoring.register(game, "test_06");
+		int active = Monitoring.getActiveGames();
+		GameMetrics metrics = game.getMetrics();
+		Game duplicate = game();
+		duplicate.setMetrics(GameMetrics.GLOBAL);
+		assertThrows(IllegalArgumentException.class, () -> Monitoring.register(duplicate, "test_06"));
+		assertSame(GameMetrics.GLOBAL, duplicate.getMetrics());
+		assertEquals(active, Monitoring.getActiveGames());
+		Runnable task = () -> {};
+		ObjectName other = Monitoring.register("Task", "test_06", task, Runnable.class);
+		Monitoring.unregister(other);
+		assertEquals(active, Monitoring.getActiveGames());
+		Monitoring.unregister(name);
+		assertEquals(active - 1, Monitoring.getActiveGames());
+		assertSame(metrics, game.getMetrics());
+	}
+
+	/**
+	 * Boards record every board created, and the time taken removing lines
+	 * outside of a game, but only when given metrics.
+	 */
+	@Test public void test_07() {
+		GameMetrics metrics = new GameMetrics();
+		GameMetrics.setBoardMetrics(metrics);
+		try {
+			Board board = new Board(5, 5);
+			board.copy();
+			new BoardArena(5, 5, 2).allocate().copy();
+			for (int x = 0; x < 5; ++x) {
+				board.setPlacedTetrominoAt(x, 0, new O_Tetromino(Color.RED));
+			}
+			assertArrayEquals(new int[] { 0 }, board.LineProcess());
+			GameMetrics.Snapshot snapshot = metrics.snapshot();
+			assertEquals(4, snapshot.getBoardsAllocated());
+			assertEquals(1, snapshot.getLineTime().getCount());
+			// Games record line removal through their boards
+			play(game());
+			assertEquals(3, metrics.snapshot().getLineTime().getCount());
+		} finally {
+			GameMetrics.setBoardMetrics(null);
+		}
+		long allocated = metrics.snapshot().getBoardsAllocated();
+		new Board(5, 5);
+		assertEquals(allocated, metrics.snapshot().getBoardsAllocated());
+	}
+
+	/**
+	 * Construct a game which issues two I tetrominos.
+	 *
+	 * @return The game.
+	 */
+	private static Game game() {
+		Tetromino[] tetrominos = {
+			new I_Tetromino(Orientation.NORTH, Color.YELLOW),
+			new I_Tetromino(Orientation.NORTH, Color.BLUE),
+			new O_Tetromino(Color.RED)
+		};
+		return new Game(Arrays.asList(tetrominos).iterator(),5,5);
+	}
+
+	/**
+	 * Lay one I tetromino flat in the bottom left, then stand the other in the
+	 * remaining column, which removes the bottom line.
+	 *
+	 * @param game The game to play.
+	 */
+	private static void play(Game game) {
+		game.clock();
+		game.apply(new MoveLeft());
+		game.apply(new DropMove());
+		game.clock();
+		game.clock();
+		game.apply(new ClockwiseRotation());
+		game.apply(new MoveRight());
+		game.apply(new MoveRight());
+		game.apply(new MoveRight());
+		game.apply(new DropMove());
+		game.clock();
+	}
+}
@@ -0,0 +1,81 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import swen221.tetris.logic.Game;
+import swen221.tetris.logic.TranspositionTable;
+import swen221.tetris.logic.TranspositionTable.Policy;
+import swen221.tetris.moves.*;
+import swen221.tetris.tetromino.*;
+import swen221.tetris.tetromino.Tetromino;
+import swen221.tetris.tetromino.Tetromino.Color;
+import swen221.tetris.tetromino.Tetromino.Orientation;
+
+/**
+ * Tests for the transposition table.
+ *
+ * @author David J. Pearce
+ *
+ */
+public class TranspositionTableTests {
+	/**
+	 * A position reached by different move orders is found in the table.
+	 */
+	@Test public void test_01() {
+		Tetromino[] tetrominos = {new T_Tetromino(Orientation.NORTH, Color.RED), new O_Tetromino(Color.BLUE)};
+		Game g1 = new Game(Arrays.asList(tetrominos).iterator(),5,5);
+		Game g2 = new Game(Arrays.asList(tetrominos).iterator(),5,5);
+		g1.clock();
+		g2.clock();
+		g1.apply(new MoveLeft());
+		g1.apply(new MoveDown());
+		g2.apply(new MoveDown());
+		g2.apply(new MoveLeft());
+		TranspositionTable table = new TranspositionTable(64, Policy.TWO_TIER);
+		long k1 = TranspositionTable.key(g1.getActiveBoard(), g1.getNextTetromino());
+		long k2 = TranspositionTable.key(g2.getActiveBoard(), g2.getNextTetromino());
+		assertEquals(TranspositionTable.NONE, table.lookup(k1));
+		table.store(k1, 3, 42);
+		long result = table.lookup(k2);
+		assertEquals(42, TranspositionTable.getValue(result));
+		assertEquals(3, TranspositionTable.getDepth(result));
+		assertEquals(1, table.getHits());
+		assertEquals(1, table.getMisses());
+	}
+
+	/**
+	 * The depth-preferred policy keeps the deeper of two colliding results,
+	 * whilst the always-replace policy keeps the most recent.
+	 */
+	@Test public void test_02() {
+		TranspositionTable deep = new TranspositionTable(1, Policy.DEPTH_PREFERRED);
+		TranspositionTable recent = new TranspositionTable(1, Policy.ALWAYS_REPLACE);
+		deep.store(1, 5, 10);
+		deep.store(2, 2, 20);
+		recent.store(1, 5, 10);
+		recent.store(2, 2, 20);
+		assertEquals(10, TranspositionTable.getValue(deep.lookup(1)));
+		assertEquals(TranspositionTable.NONE, deep.lookup(2));
+		assertEquals(TranspositionTable.NONE, recent.lookup(1));
+		assertEquals(20, TranspositionTable.getValue(recent.lookup(2)));
+	}
+
+	/**
+	 * The two-tier policy keeps both colliding results.
+	 */
+	@Test public void test_03() {
+		TranspositionTable table = new TranspositionTable(2, Policy.TWO_TIER);
+		table.store(1, 5, 10);
+		table.store(2, 2, 20);
+		table.store(3, 7, 30);
+		assertEquals(30, TranspositionTable.getValue(table.lookup(3)));
+		assertEquals(10, TranspositionTable.getValue(table.lookup(1)));
+		assertEquals(TranspositionTable.NONE, table.lookup(2));
+	}
+}
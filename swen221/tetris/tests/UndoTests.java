@@ -0,0 +1,147 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import swen221.tetris.logic.Game;
+import swen221.tetris.moves.*;
+import swen221.tetris.tetromino.*;
+import swen221.tetris.tetromino.Tetromino;
+import swen221.tetris.tetromino.Tetromino.Color;
+import swen221.tetris.tetromino.Tetromino.Orientation;
+
+/**
+ * Tests for games in mutable mode, where moves update the board in place and
+ * can be undone.
+ *
+ * @author David J. Pearce
+ *
+ */
+public class UndoTests {
+	/**
+	 * Moves applied in mutable mode update the board in place.
+	 */
+	@Test public void test_01() {
+		Tetromino[] tetrominos = {new L_Tetromino(Orientation.NORTH, Color.GREEN), new O_Tetromino(Color.BLUE)};
+		Game game = new Game(Arrays.asList(tetrominos).iterator(),5,5);
+		game.setMutable(true);
+		game.clock();
+		Object board = game.getActiveEngine();
+		assertEquals(true, game.apply(new MoveLeft()));
+		assertEquals(false, game.apply(new MoveLeft()));
+		assertSame(board, game.getActiveEngine());
+		String expected=
+			"|_|_|G|_|_|\n" +
+			"|G|G|G|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n";
+		assertEquals(expected, game.getActiveBoard().toString());
+	}
+
+	/**
+	 * Undo a single move.
+	 */
+	@Test public void test_02() {
+		Tetromino[] tetrominos = {new J_Tetromino(Orientation.NORTH, Color.BLUE), new O_Tetromino(Color.BLUE)};
+		Game game = new Game(Arrays.asList(tetrominos).iterator(),5,5);
+		game.setMutable(true);
+		game.clock();
+		String before = game.getActiveBoard().toString();
+		game.apply(new ClockwiseRotation());
+		game.undo();
+		assertEquals(before, game.getActiveBoard().toString());
+	}
+
+	/**
+	 * Undo a landing which removes a line, along with the promotion of the next
+	 * tetromino.
+	 */
+	@Test public void test_03() {
+		Tetromino[] tetrominos = {
+			new I_Tetromino(Orientation.NORTH, Color.YELLOW),
+			new I_Tetromino(Orientation.NORTH, Color.BLUE),
+			new O_Tetromino(Color.RED),
+			new O_Tetromino(Color.GREEN)
+		};
+		Game game = new Game(Arrays.asList(tetrominos).iterator(),5,5);
+		game.setMutable(true);
+		int mark = game.mark();
+		String initial = game.getActiveBoard().toString();
+		// I Tetromino
+		game.clock();
+		game.apply(new MoveLeft());
+		game.apply(new DropMove());
+		game.clock();
+		String expected=
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|Y|Y|Y|Y|_|\n";
+		assertEquals(expected, game.getActiveBoard().toString());
+		int placed = game.mark();
+		// I Tetromino
+		game.clock();
+		game.apply(new ClockwiseRotation());
+		game.apply(new MoveRight());
+		game.apply(new MoveRight());
+		game.apply(new DropMove());
+		game.clock();
+		// Line removed
+		expected=
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|B|\n" +
+			"|_|_|_|_|B|\n" +
+			"|_|_|_|_|B|\n";
+		assertEquals(expected, game.getActiveBoard().toString());
+		// Undo back to before the second I tetromino was issued
+		game.undoTo(placed);
+		expected=
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|Y|Y|Y|Y|_|\n";
+		assertEquals(expected, game.getActiveBoard().toString());
+		assertEquals(Color.BLUE, game.getNextTetromino().getColor());
+		// The same tetromino is issued again
+		game.clock();
+		expected=
+			"|_|_|_|_|_|\n" +
+			"|_|B|B|B|B|\n" +
+			"|_|_|_|_|_|\n" +
+			"|_|_|_|_|_|\n" +
+			"|Y|Y|Y|Y|_|\n";
+		assertEquals(expected, game.getActiveBoard().toString());
+		assertEquals(Color.RED, game.getNextTetromino().getColor());
+		// Undo everything
+		game.undoTo(mark);
+		assertEquals(initial, game.getActiveBoard().toString());
+		assertEquals(Color.YELLOW, game.getNextTetromino().getColor());
+	}
+
+	/**
+	 * Dropping a tetromino which has already landed changes nothing, so undoing
+	 * afterwards reverts the drop which landed it.
+	 */
+	@Test public void test_04() {
+		Tetromino[] tetrominos = {new O_Tetromino(Color.RED), new O_Tetromino(Color.BLUE)};
+		Game game = new Game(Arrays.asList(tetrominos).iterator(),5,5);
+		game.setMutable(true);
+		game.clock();
+		String before = game.getActiveBoard().toString();
+		assertTrue(game.apply(new DropMove()));
+		String dropped = game.getActiveBoard().toString();
+		assertTrue(game.apply(new DropMove()));
+		assertEquals(dropped, game.getActiveBoard().toString());
+		game.undo();
+		assertEquals(before, game.getActiveBoard().toString());
+	}
+}
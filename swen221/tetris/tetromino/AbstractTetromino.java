@@ -3,8 +3,15 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.tetromino;
 
+import java.util.function.BiFunction;
+
+import swen221.tetris.logic.Rectangle;
+
 /**
  * Provides a base implementation from which all concrete tetromino's extend.
+ * Tetrominos are immutable and each concrete kind maintains a canonical
+ * instance for every orientation and colour, which is returned when rotating.
+ * Hence, two canonical tetrominos can be compared using reference equality.
  *
  * @author David J. Pearce
  * @author Marco Servetto
@@ -15,22 +22,30 @@ public abstract class AbstractTetromino implements Tetromino {
 	/**
 	 * The orientation of this Tetromino.
 	 */
-	protected Orientation orientation;
+	protected final Orientation orientation;
 
 	/**
 	 * color of the Tetromino cells
 	 */
-	protected Color color;
+	protected final Color color;
+
+	/**
+	 * The cells of this kind of tetromino in each orientation, indexed by
+	 * <code>Orientation.ordinal()</code>.
+	 */
+	private final Shape[] shapes;
 
 	/**
 	 * Create an abstract tetromino with a given orientation and colour.
 	 *
 	 * @param orientation Orientation for tetromino.
 	 * @param color       Colour of tetromino.
+	 * @param shapes      Cells of the tetromino in each orientation.
 	 */
-	AbstractTetromino(Orientation orientation, Color color) {
+	AbstractTetromino(Orientation orientation, Color color, Shape[] shapes) {
 		this.orientation = orientation;
 		this.color = color;
+		this.shapes = shapes;
 	}
 
 	@Override
@@ -43,6 +58,47 @@ public abstract class AbstractTetromino implements Tetromino {
 		return orientation;
 	}
 
+	/**
+	 * Construct the canonical instances for a given kind of tetromino. The
+	 * resulting table is indexed first by <code>Orientation.ordinal()</code> and
+	 * then by <code>Color.ordinal()</code>.
+	 *
+	 * @param constructor Constructs a new tetromino of the given kind.
+	 * @return The table of canonical instances.
+	 */
+	static Tetromino[][] flyweights(BiFunction<Orientation, Color, Tetromino> constructor) {
+		Orientation[] orientations = Orientation.values();
+		Color[] colors = Color.values();
+		Tetromino[][] instances = new Tetromino[orientations.length][colors.length];
+		for (Orientation orientation : orientations) {
+			for (Color color : colors) {
+				instances[orientation.ordinal()][color.ordinal()] = constructor.apply(orientation, color);
+			}
+		}
+		return instances;
+	}
+
+	/**
+	 * Get the precomputed cells of this tetromino in a given orientation.
+	 *
+	 * @param orientation The orientation of interest.
+	 * @return The shape for that orientation.
+	 */
+	public Shape getShape(Orientation orientation) {
+		return shapes[orientation.ordinal()];
+	}
+
+	@Override
+	public boolean isWithin(int x, int y) {
+		// NOTE: the cells of a tetromino are always given facing north
+		return shapes[0].contains(x, y);
+	}
+
+	@Override
+	public Rectangle getBoundingBox() {
+		return shapes[0].getBoundingBox();
+	}
+
 	@Override
 	public abstract String getName();
 
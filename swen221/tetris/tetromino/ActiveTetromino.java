@@ -32,6 +32,11 @@ public class ActiveTetromino implements Tetromino {
 	 */
 	protected final int y;
 
+	/**
+	 * The cells of the underlying tetromino in its current orientation.
+	 */
+	private final Shape shape;
+
 	/**
 	 * Create an active tetromino object for a given tetromino.
 	 *
@@ -46,6 +51,22 @@ public class ActiveTetromino implements Tetromino {
 		this.x = x;
 		this.y = y;
 		this.tetromino = tetromino;
+		this.shape = Shape.of(tetromino, tetromino.getOrientation());
+	}
+
+	/**
+	 * Create an active tetromino whose shape is already known.
+	 *
+	 * @param x         Column coordinate of the center of the tetromino
+	 * @param y         Row coordinate of the center of the tetromino
+	 * @param tetromino Tetromino which underpins this active tetromino.
+	 * @param shape     Cells of the tetromino in its current orientation.
+	 */
+	private ActiveTetromino(int x, int y, Tetromino tetromino, Shape shape) {
+		this.x = x;
+		this.y = y;
+		this.tetromino = tetromino;
+		this.shape = shape;
 	}
 
 	@Override
@@ -67,36 +88,64 @@ public class ActiveTetromino implements Tetromino {
 		return tetromino;
 	}
 
+	/**
+	 * Get the cells of this tetromino in its current orientation, given as offsets
+	 * from its center.
+	 *
+	 * @return The shape of this tetromino.
+	 */
+	public Shape getShape() {
+		return shape;
+	}
+
 	@Override
 	public boolean isWithin(int x, int y) {
-		int dx = x - this.x;
-		int dy = y - this.y;
-		//
-		switch (tetromino.getOrientation()) {
-		case NORTH:
-			return tetromino.isWithin(dx, dy);
-		case SOUTH:
-			return tetromino.isWithin(-dx, -dy);
-		case EAST:
-			return tetromino.isWithin(-dy, dx);
-		case WEST:
-		default:
-			return tetromino.isWithin(dy, -dx);
-		}
+		return shape.contains(x - this.x, y - this.y);
 	}
 
 	@Override
 	public Rectangle getBoundingBox() {
-		Rectangle box = tetromino.getBoundingBox();
-		switch (tetromino.getOrientation()) {
-		case WEST:
-			box = box.rotateClockwise();
-		case SOUTH:
-			box = box.rotateClockwise();
-		case EAST:
-			box = box.rotateClockwise();
-		}
-		return box.translate(x, y);
+		return shape.getBoundingBox().translate(x, y);
+	}
+
+	/**
+	 * Get the column of the left-hand side of the bounding box. Unlike
+	 * <code>getBoundingBox()</code>, this does not allocate.
+	 *
+	 * @return x-coordinate.
+	 */
+	public int getMinX() {
+		return x + shape.getMinX();
+	}
+
+	/**
+	 * Get the column of the right-hand side of the bounding box. Unlike
+	 * <code>getBoundingBox()</code>, this does not allocate.
+	 *
+	 * @return x-coordinate.
+	 */
+	public int getMaxX() {
+		return x + shape.getMaxX();
+	}
+
+	/**
+	 * Get the row of the lower side of the bounding box. Unlike
+	 * <code>getBoundingBox()</code>, this does not allocate.
+	 *
+	 * @return y-coordinate.
+	 */
+	public int getMinY() {
+		return y + shape.getMinY();
+	}
+
+	/**
+	 * Get the row of the upper side of the bounding box. Unlike
+	 * <code>getBoundingBox()</code>, this does not allocate.
+	 *
+	 * @return y-coordinate.
+	 */
+	public int getMaxY() {
+		return y + shape.getMaxY();
 	}
 
 	/**
@@ -108,7 +157,7 @@ public class ActiveTetromino implements Tetromino {
 	 *         translation.
 	 */
 	public ActiveTetromino translate(int dx, int dy) {
-		return new ActiveTetromino(x + dx, y + dy, tetromino);
+		return new ActiveTetromino(x + dx, y + dy, tetromino, shape);
 	}
 
 	@Override
@@ -3,7 +3,6 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.tetromino;
 
-import swen221.tetris.logic.Rectangle;
 import swen221.tetris.tetromino.Tetromino.Orientation;
 
 /**
@@ -13,6 +12,16 @@ import swen221.tetris.tetromino.Tetromino.Orientation;
  * @author Marco Servetto
  */
 public class I_Tetromino extends AbstractTetromino {
+	/**
+	 * The cells of this tetromino in each orientation.
+	 */
+	private static final Shape[] SHAPES = Shape.rotations(-1, 0, 0, 0, 1, 0, 2, 0);
+
+	/**
+	 * The canonical instances of this tetromino, indexed by orientation and colour.
+	 */
+	private static final Tetromino[][] INSTANCES = flyweights(I_Tetromino::new);
+
 	/**
 	 * Create tetromino with a given orientation and colour.
 	 *
@@ -20,22 +29,24 @@ public class I_Tetromino extends AbstractTetromino {
 	 * @param color       Colour of tetromino.
 	 */
 	public I_Tetromino(Orientation orientation, Color color) {
-		super(orientation, color);
+		super(orientation, color, SHAPES);
 	}
 
-	@Override
-	public boolean isWithin(int x, int y) {
-		return x >= -1 && x <= 2 && y == 0;
-	}
-
-	@Override
-	public Rectangle getBoundingBox() {
-		return new Rectangle(-1, 0, 2, 0);
+	/**
+	 * Get the canonical tetromino with a given orientation and colour. This
+	 * returns the same instance on every call and does not allocate.
+	 *
+	 * @param orientation Orientation for tetromino.
+	 * @param color       Colour of tetromino.
+	 * @return The canonical tetromino.
+	 */
+	public static I_Tetromino valueOf(Orientation orientation, Color color) {
+		return (I_Tetromino) INSTANCES[orientation.ordinal()][color.ordinal()];
 	}
 
 	@Override
 	public Tetromino rotate(int steps) {
-		return new I_Tetromino(orientation.rotate(steps), color);
+		return INSTANCES[orientation.rotate(steps).ordinal()][color.ordinal()];
 	}
 
 	@Override
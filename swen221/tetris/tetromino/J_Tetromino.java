@@ -3,8 +3,6 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.tetromino;
 
-import swen221.tetris.logic.Rectangle;
-
 /**
  * The "J" tetromino.
  *
@@ -13,6 +11,16 @@ import swen221.tetris.logic.Rectangle;
  *
  */
 public class J_Tetromino extends AbstractTetromino {
+	/**
+	 * The cells of this tetromino in each orientation.
+	 */
+	private static final Shape[] SHAPES = Shape.rotations(-1, 1, -1, 0, 0, 0, 1, 0);
+
+	/**
+	 * The canonical instances of this tetromino, indexed by orientation and colour.
+	 */
+	private static final Tetromino[][] INSTANCES = flyweights(J_Tetromino::new);
+
 	/**
 	 * Create tetromino with a given orientation and colour.
 	 *
@@ -20,27 +28,24 @@ public class J_Tetromino extends AbstractTetromino {
 	 * @param color       Colour of tetromino.
 	 */
 	public J_Tetromino(Orientation orientation, Color color) {
-		super(orientation, color);
+		super(orientation, color, SHAPES);
 	}
 
-	@Override
-	public boolean isWithin(int x, int y) {
-		if(y == 1 && x == -1){
-			return true;
-		} else {
-			return x >= -1 && x <= 1 && y == 0 ;
-		}
-
-	}
-
-	@Override
-	public Rectangle getBoundingBox() {
-		return new Rectangle(-1, 1, 1, 0);
+	/**
+	 * Get the canonical tetromino with a given orientation and colour. This
+	 * returns the same instance on every call and does not allocate.
+	 *
+	 * @param orientation Orientation for tetromino.
+	 * @param color       Colour of tetromino.
+	 * @return The canonical tetromino.
+	 */
+	public static J_Tetromino valueOf(Orientation orientation, Color color) {
+		return (J_Tetromino) INSTANCES[orientation.ordinal()][color.ordinal()];
 	}
 
 	@Override
 	public Tetromino rotate(int steps) {
-		return new J_Tetromino(orientation.rotate(steps), color);
+		return INSTANCES[orientation.rotate(steps).ordinal()][color.ordinal()];
 	}
 
 	@Override
@@ -3,8 +3,6 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.tetromino;
 
-import swen221.tetris.logic.Rectangle;
-
 /**
  * The "O" tetromino.
  *
@@ -13,6 +11,22 @@ import swen221.tetris.logic.Rectangle;
  *
  */
 public class O_Tetromino extends AbstractTetromino {
+	/**
+	 * The cells of this tetromino in each orientation.
+	 */
+	private static final Shape[] SHAPES = Shape.rotations(0, 0, 1, 0, 0, 1, 1, 1);
+
+	/**
+	 * The canonical instances of this tetromino, indexed by colour.
+	 */
+	private static final O_Tetromino[] INSTANCES = new O_Tetromino[Color.values().length];
+
+	static {
+		for (Color color : Color.values()) {
+			INSTANCES[color.ordinal()] = new O_Tetromino(color);
+		}
+	}
+
 	/**
 	 * Create tetromino with a given colour. No orientation is required, since this
 	 * doesn't make sense for this particular tetromino!
@@ -21,22 +35,23 @@ public class O_Tetromino extends AbstractTetromino {
 	 */
 	public O_Tetromino(Color color) {
 		// NOTE: orientation fixed for this tetromino
-		super(Orientation.NORTH, color);
-	}
-
-	@Override
-	public boolean isWithin(int x, int y) {
-		return x >= 0 && x < 2 && y >= 0 && y <= 1;
+		super(Orientation.NORTH, color, SHAPES);
 	}
 
-	@Override
-	public Rectangle getBoundingBox() {
-		return new Rectangle(0, 1, 1, 0);
+	/**
+	 * Get the canonical tetromino with a given colour. This returns the same
+	 * instance on every call and does not allocate.
+	 *
+	 * @param color Colour of tetromino.
+	 * @return The canonical tetromino.
+	 */
+	public static O_Tetromino valueOf(Color color) {
+		return INSTANCES[color.ordinal()];
 	}
 
 	@Override
 	public Tetromino rotate(int steps) {
-		return this;
+		return INSTANCES[color.ordinal()];
 	}
 
 	@Override
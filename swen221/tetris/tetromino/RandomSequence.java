@@ -0,0 +1,85 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.tetromino;
+
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * An infinite, reproducible sequence of randomly chosen tetrominos. Two
+ * sequences constructed with the same seed always produce the same tetrominos,
+ * which makes this suitable for replaying games (e.g. when testing or
+ * benchmarking). Tetrominos are issued facing north, and are shared instances.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public class RandomSequence implements Iterator<Tetromino> {
+	/**
+	 * The names of all tetrominos.
+	 */
+	public static final String ALL = "ZSTJLOI";
+
+	/**
+	 * The random number generator used to choose tetrominos.
+	 */
+	private final Random random;
+
+	/**
+	 * The names of the tetrominos from which the sequence is chosen.
+	 */
+	private final char[] names;
+
+	/**
+	 * Construct a sequence from a given seed, choosing from all tetrominos.
+	 *
+	 * @param seed The seed which determines the sequence.
+	 */
+	public RandomSequence(long seed) {
+		this(seed, ALL);
+	}
+
+	/**
+	 * Construct a sequence from a given seed, choosing only from a given mix of
+	 * tetrominos. For example, <code>"SZ"</code> issues only S and Z tetrominos.
+	 *
+	 * @param seed  The seed which determines the sequence.
+	 * @param names The names of the tetrominos to choose from.
+	 */
+	public RandomSequence(long seed, String names) {
+		if (names.isEmpty() || !names.matches("[IJLOSTZ]+")) {
+			throw new IllegalArgumentException("Invalid tetrominos (" + names + ")");
+		}
+		this.random = new Random(seed);
+		this.names = names.toCharArray();
+	}
+
+	@Override
+	public boolean hasNext() {
+		// This is an infinite stream
+		return true;
+	}
+
+	@Override
+	public Tetromino next() {
+		Tetromino.Color color = Tetromino.Color.of(random.nextInt(Tetromino.Color.count()));
+		switch (names[random.nextInt(names.length)]) {
+		case 'Z':
+			return Z_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
+		case 'S':
+			return S_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
+		case 'T':
+			return T_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
+		case 'J':
+			return J_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
+		case 'L':
+			return L_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
+		case 'O':
+			return O_Tetromino.valueOf(color);
+		default:
+			return I_Tetromino.valueOf(Tetromino.Orientation.NORTH, color);
+		}
+	}
+}
@@ -0,0 +1,289 @@
+// This program is copyright VUW.
+// You are granted permission to use it to construct your answer to a SWEN221 assignment.
+// You may not distribute it in any other way without permission.
+package swen221.tetris.tetromino;
+
+import java.util.Arrays;
+
+import swen221.tetris.logic.Rectangle;
+import swen221.tetris.tetromino.Tetromino.Orientation;
+
+/**
+ * Represents the precomputed cells of a tetromino in a given orientation. Cells
+ * are given as offsets from the center of the tetromino and, for each row of
+ * the bounding box, a bitmask identifies which columns are occupied. Shapes are
+ * immutable and are computed once per kind of tetromino, such that checking
+ * membership or visiting the cells of a tetromino does not require scanning its
+ * bounding box.
+ *
+ * @author David J. Pearce
+ * @author Marco Servetto
+ *
+ */
+public final class Shape {
+	/**
+	 * The x-offsets of the cells making up this shape.
+	 */
+	private final int[] xs;
+	/**
+	 * The y-offsets of the cells making up this shape.
+	 */
+	private final int[] ys;
+	/**
+	 * The smallest x-offset of any cell.
+	 */
+	private final int minX;
+	/**
+	 * The smallest y-offset of any cell.
+	 */
+	private final int minY;
+	/**
+	 * The largest x-offset of any cell.
+	 */
+	private final int maxX;
+	/**
+	 * The largest y-offset of any cell.
+	 */
+	private final int maxY;
+	/**
+	 * The occupied columns of each row in the bounding box, starting from the
+	 * bottom row. Bit <code>i</code> corresponds to x-offset <code>minX + i</code>.
+	 */
+	private final int[] rows;
+	/**
+	 * The lowest y-offset of any cell in each column of the bounding box, starting
+	 * from the left-hand column. This is the profile which comes into contact with
+	 * the board as the shape falls.
+	 */
+	private final int[] bottoms;
+	/**
+	 * The bounding box of this shape, which is computed once since rectangles are
+	 * immutable.
+	 */
+	private final Rectangle box;
+
+	/**
+	 * Construct a shape from a given set of cell offsets.
+	 *
+	 * @param xs The x-offsets of each cell.
+	 * @param ys The y-offsets of each cell.
+	 */
+	private Shape(int[] xs, int[] ys) {
+		if (xs.length == 0 || xs.length != ys.length) {
+			throw new IllegalArgumentException("invalid shape");
+		}
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < xs.length; ++i) {
+			minX = Math.min(minX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		if ((maxX - minX) >= Integer.SIZE) {
+			throw new IllegalArgumentException("shape too wide");
+		}
+		this.xs = xs;
+		this.ys = ys;
+		this.minX = minX;
+		this.minY = minY;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.rows = new int[(maxY - minY) + 1];
+		for (int i = 0; i < xs.length; ++i) {
+			rows[ys[i] - minY] |= 1 << (xs[i] - minX);
+		}
+		this.bottoms = new int[(maxX - minX) + 1];
+		Arrays.fill(bottoms, Integer.MAX_VALUE);
+		for (int i = 0; i < xs.length; ++i) {
+			bottoms[xs[i] - minX] = Math.min(bottoms[xs[i] - minX], ys[i]);
+		}
+		this.box = new Rectangle(minX, maxY, maxX, minY);
+	}
+
+	/**
+	 * Get the number of cells in this shape.
+	 *
+	 * @return The number of cells.
+	 */
+	public int size() {
+		return xs.length;
+	}
+
+	/**
+	 * Get the x-offset of a given cell in this shape.
+	 *
+	 * @param i The index of the cell.
+	 * @return The x-offset of the cell from the center.
+	 */
+	public int getX(int i) {
+		return xs[i];
+	}
+
+	/**
+	 * Get the y-offset of a given cell in this shape.
+	 *
+	 * @param i The index of the cell.
+	 * @return The y-offset of the cell from the center.
+	 */
+	public int getY(int i) {
+		return ys[i];
+	}
+
+	/**
+	 * Get the smallest x-offset of any cell in this shape.
+	 *
+	 * @return x-offset.
+	 */
+	public int getMinX() {
+		return minX;
+	}
+
+	/**
+	 * Get the largest x-offset of any cell in this shape.
+	 *
+	 * @return x-offset.
+	 */
+	public int getMaxX() {
+		return maxX;
+	}
+
+	/**
+	 * Get the smallest y-offset of any cell in this shape.
+	 *
+	 * @return y-offset.
+	 */
+	public int getMinY() {
+		return minY;
+	}
+
+	/**
+	 * Get the largest y-offset of any cell in this shape.
+	 *
+	 * @return y-offset.
+	 */
+	public int getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * Get the bounding box of this shape, relative to its center. The same
+	 * rectangle is returned on every call.
+	 *
+	 * @return The bounding box.
+	 */
+	public Rectangle getBoundingBox() {
+		return box;
+	}
+
+	/**
+	 * Get the columns occupied by this shape on a given row. Bit <code>i</code> of
+	 * the mask is set when the cell at x-offset <code>getMinX() + i</code> is
+	 * occupied. Since a shape can be 32 columns wide, bit 31 may be set and so the
+	 * mask must be widened to a <code>long</code> without sign extension.
+	 *
+	 * @param y The y-offset of the row, which must be between
+	 *          <code>getMinY()</code> and <code>getMaxY()</code>.
+	 * @return The row mask.
+	 */
+	public int getRowMask(int y) {
+		return rows[y - minY];
+	}
+
+	/**
+	 * Get the lowest cell of this shape in a given column.
+	 *
+	 * @param x The x-offset of the column, which must be between
+	 *          <code>getMinX()</code> and <code>getMaxX()</code>.
+	 * @return The y-offset of the lowest cell in the column, or
+	 *         <code>Integer.MAX_VALUE</code> if the column has no cells.
+	 */
+	public int getBottom(int x) {
+		return bottoms[x - minX];
+	}
+
+	/**
+	 * Check whether a given offset is one of the cells making up this shape.
+	 *
+	 * @param x The x-offset being checked.
+	 * @param y The y-offset being checked.
+	 * @return True if the offset is within this shape.
+	 */
+	public boolean contains(int x, int y) {
+		if (y < minY || y > maxY || x < minX || x > maxX) {
+			return false;
+		}
+		return (rows[y - minY] & (1 << (x - minX))) != 0;
+	}
+
+	/**
+	 * Rotate this shape clockwise about its center. This follows the same
+	 * convention as <code>Rectangle.rotateClockwise()</code>, such that the cell
+	 * at offset <code>(x,y)</code> moves to <code>(y,-x)</code>.
+	 *
+	 * @return A new shape representing this shape after the rotation.
+	 */
+	public Shape rotateClockwise() {
+		int[] nxs = new int[xs.length];
+		int[] nys = new int[ys.length];
+		for (int i = 0; i < xs.length; ++i) {
+			nxs[i] = ys[i];
+			nys[i] = -xs[i];
+		}
+		return new Shape(nxs, nys);
+	}
+
+	/**
+	 * Construct the table of shapes for a given kind of tetromino in each
+	 * orientation. The table is indexed by <code>Orientation.ordinal()</code>.
+	 *
+	 * @param cells The offsets of the cells when facing north, given as
+	 *              consecutive <code>x,y</code> pairs.
+	 * @return The shape for each orientation.
+	 */
+	public static Shape[] rotations(int... cells) {
+		int[] xs = new int[cells.length / 2];
+		int[] ys = new int[cells.length / 2];
+		for (int i = 0; i < xs.length; ++i) {
+			xs[i] = cells[i * 2];
+			ys[i] = cells[(i * 2) + 1];
+		}
+		Shape[] shapes = new Shape[Orientation.values().length];
+		shapes[0] = new Shape(xs, ys);
+		for (int i = 1; i < shapes.length; ++i) {
+			shapes[i] = shapes[i - 1].rotateClockwise();
+		}
+		return shapes;
+	}
+
+	/**
+	 * Determine the shape of a given tetromino when placed in a given orientation.
+	 * The tetromino's own cells (i.e. as determined by its <code>isWithin()</code>
+	 * method) are taken to be facing north. For the builtin tetrominos this simply
+	 * returns an entry from their precomputed table.
+	 *
+	 * @param tetromino   The tetromino whose shape is required.
+	 * @param orientation The orientation of the resulting shape.
+	 * @return The shape in the given orientation.
+	 */
+	public static Shape of(Tetromino tetromino, Orientation orientation) {
+		if (tetromino instanceof AbstractTetromino) {
+			return ((AbstractTetromino) tetromino).getShape(orientation);
+		}
+		// Fall back to scanning the bounding box of an unknown tetromino.
+		Rectangle r = tetromino.getBoundingBox();
+		int n = 0;
+		int[] cells = new int[2 * ((r.getMaxX() - r.getMinX()) + 1) * ((r.getMaxY() - r.getMinY()) + 1)];
+		for (int x = r.getMinX(); x <= r.getMaxX(); ++x) {
+			for (int y = r.getMinY(); y <= r.getMaxY(); ++y) {
+				if (tetromino.isWithin(x, y)) {
+					cells[n++] = x;
+					cells[n++] = y;
+				}
+			}
+		}
+		int[] copy = new int[n];
+		System.arraycopy(cells, 0, copy, 0, n);
+		return rotations(copy)[orientation.ordinal()];
+	}
+}
@@ -38,6 +38,23 @@ public interface Tetromino {
 		 */
 		WEST;
 
+		/**
+		 * The orientations in clockwise order, which is the order of their
+		 * ordinals.
+		 */
+		private static final Orientation[] VALUES = values();
+
+		/**
+		 * Get the orientation with a given ordinal. Unlike <code>values()</code>,
+		 * this does not allocate.
+		 *
+		 * @param ordinal The ordinal of the orientation.
+		 * @return The orientation.
+		 */
+		public static Orientation of(int ordinal) {
+			return VALUES[ordinal];
+		}
+
 		/**
 		 * Rotate a given orientation by a given number of steps in either a clockwise
 		 * or anti-clockwise direction.
@@ -48,15 +65,7 @@ public interface Tetromino {
 		 * @return Rotated orientation.
 		 */
 		public Orientation rotate(int steps) {
-			Orientation[] values = values();
-			int index = ordinal() + steps;
-			while (index < 0) {
-				index += values.length;
-			}
-			while (index >= values.length) {
-				index -= values.length;
-			}
-			return values[index];
+			return VALUES[Math.floorMod(ordinal() + steps, VALUES.length)];
 		}
 	}
 
@@ -94,6 +103,31 @@ public interface Tetromino {
 		 * For gray tetrominos.
 		 */
 		DARK_GRAY;
+
+		/**
+		 * The colours in the order of their ordinals.
+		 */
+		private static final Color[] VALUES = values();
+
+		/**
+		 * Get the colour with a given ordinal. Unlike <code>values()</code>, this
+		 * does not allocate.
+		 *
+		 * @param ordinal The ordinal of the colour.
+		 * @return The colour.
+		 */
+		public static Color of(int ordinal) {
+			return VALUES[ordinal];
+		}
+
+		/**
+		 * Get the number of colours.
+		 *
+		 * @return The number of colours.
+		 */
+		public static int count() {
+			return VALUES.length;
+		}
 	}
 
 	/**
@@ -3,8 +3,6 @@
 // You may not distribute it in any other way without permission.
 package swen221.tetris.tetromino;
 
-import swen221.tetris.logic.Rectangle;
-
 /**
  * The "Z" tetromino.
  *
@@ -13,6 +11,16 @@ import swen221.tetris.logic.Rectangle;
  *
  */
 public class Z_Tetromino extends AbstractTetromino {
+	/**
+	 * The cells of this tetromino in each orientation.
+	 */
+	private static final Shape[] SHAPES = Shape.rotations(-1, 1, 0, 1, 0, 0, 1, 0);
+
+	/**
+	 * The canonical instances of this tetromino, indexed by orientation and colour.
+	 */
+	private static final Tetromino[][] INSTANCES = flyweights(Z_Tetromino::new);
+
 	/**
 	 * Create tetromino with a given orientation and colour.
 	 *
@@ -20,34 +28,24 @@ public class Z_Tetromino extends AbstractTetromino {
 	 * @param color       Colour of tetromino.
 	 */
 	public Z_Tetromino(Orientation orientation, Color color) {
-		super(orientation, color);
-	}
-
-	@Override
-	public boolean isWithin(int x, int y) {
-		if(x == -1 && y == 1){
-			return true;
-		}
-		if(x == 0 && y == 1){
-			return true;
-		}
-		if(x == 0 && y == 0){
-			return true;
-		}
-		if(x == 1 && y == 0){
-			return true;
-		}
-		return false;
+		super(orientation, color, SHAPES);
 	}
 
-	@Override
-	public Rectangle getBoundingBox() {
-		return new Rectangle(-1, 1, 1, 0);
+	/**
+	 * Get the canonical tetromino with a given orientation and colour. This
+	 * returns the same instance on every call and does not allocate.
+	 *
+	 * @param orientation Orientation for tetromino.
+	 * @param color       Colour of tetromino.
+	 * @return The canonical tetromino.
+	 */
+	public static Z_Tetromino valueOf(Orientation orientation, Color color) {
+		return (Z_Tetromino) INSTANCES[orientation.ordinal()][color.ordinal()];
 	}
 
 	@Override
 	public Tetromino rotate(int steps) {
-		return new Z_Tetromino(orientation.rotate(steps), color);
+		return INSTANCES[orientation.rotate(steps).ordinal()][color.ordinal()];
 	}
 
 	@Override